@@ -4,16 +4,34 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.ObjectSet;
 import edu.cornell.gdiac.discodale.models.FlyModel;
-import edu.cornell.gdiac.discodale.models.SceneModel;
-import edu.cornell.gdiac.discodale.obstacle.Obstacle;
+import edu.cornell.gdiac.discodale.obstacle.FixtureTag;
 import edu.cornell.gdiac.discodale.models.DaleModel;
-import edu.cornell.gdiac.util.PooledList;
 
+/**
+ * Contact listener for the game.
+ *
+ * The Box2D callbacks only sort contacts by the fixture tags of the two sides and record
+ * what happened as an event in a ring buffer. The game logic runs later, in
+ * {@link #processEvents}, once the world has finished its step and may be changed again.
+ */
 public class CollisionController implements ContactListener {
+    /** Dale's tongue hit something he can hold on to */
+    private static final int GRAPPLE_HIT = 0;
+    /** Dale's tongue hit something reflective */
+    private static final int GRAPPLE_REFLECT = 1;
+    /** A ground sensor started touching a fixture */
+    private static final int GROUND_BEGIN = 2;
+    /** A ground sensor stopped touching a fixture */
+    private static final int GROUND_END = 3;
+    /** Dale reached the goal door */
+    private static final int GOAL = 4;
+    /** A fly caught Dale */
+    private static final int FLY_CATCH = 5;
+
+    /** Initial number of events the queue can hold; a power of two */
+    private static final int INITIAL_CAPACITY = 64;
 
     private DaleModel dale;
-    private PooledList<FlyModel> flies;
-    private SceneModel sceneModel;
     /** The fly that catches dale */
     private FlyModel flyCatch;
 
@@ -23,12 +41,24 @@ public class CollisionController implements ContactListener {
     /** Mark set to handle more sophisticated collision callbacks */
     protected ObjectSet<Fixture> sensorFixtures;
 
-    public CollisionController(DaleModel dale, PooledList<FlyModel> flies, SceneModel sceneModel) {
+    /** Event types, in the order they were reported */
+    private int[] eventTypes;
+    /** The object each event is about: a body, a fixture or a fly */
+    private Object[] eventTargets;
+    /** Local anchor of a grapple hit in the body it hit, as x, y pairs */
+    private float[] eventAnchors;
+    /** Index of the oldest queued event */
+    private int head;
+    /** Number of queued events */
+    private int size;
+
+    public CollisionController(DaleModel dale) {
         this.sensorFixtures = new ObjectSet<>();
         this.dale = dale;
-        this.flies = flies;
-        this.sceneModel = sceneModel;
         this.flyCatch = null;
+        this.eventTypes = new int[INITIAL_CAPACITY];
+        this.eventTargets = new Object[INITIAL_CAPACITY];
+        this.eventAnchors = new float[2 * INITIAL_CAPACITY];
     }
 
     /**
@@ -43,63 +73,42 @@ public class CollisionController implements ContactListener {
     public void beginContact(Contact contact) {
         Fixture fix1 = contact.getFixtureA();
         Fixture fix2 = contact.getFixtureB();
+        FixtureTag tag1 = FixtureTag.of(fix1.getUserData());
+        FixtureTag tag2 = FixtureTag.of(fix2.getUserData());
+
+        // Keep Dale's side first, so each case below is tested one way round
+        if (tag2.kind == FixtureTag.Kind.DALE || tag2.kind == FixtureTag.Kind.GROUND_SENSOR) {
+            Fixture fix = fix1;
+            fix1 = fix2;
+            fix2 = fix;
+            FixtureTag tag = tag1;
+            tag1 = tag2;
+            tag2 = tag;
+        }
 
-        Body body1 = fix1.getBody();
-        Body body2 = fix2.getBody();
-
-        Object fd1 = fix1.getUserData();
-        Object fd2 = fix2.getUserData();
-
-        try {
-            Obstacle bd1 = (Obstacle)body1.getUserData();
-            Obstacle bd2 = (Obstacle)body2.getUserData();
-
-            // See if tongue sticky part has hit something
-            if (dale.getGrappleState() == DaleModel.GrappleState.EXTENDING &&
-                    (bd1 == dale.getStickyPart() || bd2 == dale.getStickyPart())) {
-                if (bd1.getName().startsWith("reflective") || bd2.getName().startsWith("reflective")) {
-                    dale.setHitReflectiveFlag(true);
-                } else {
-                    // Can't create the weld joint directly here because it violates locking assertions or something
-                    // So set the attached body and local anchor location to create it when DaleController processes
-                    Body bodyA = dale.getStickyPart() == bd1 ? body2 : body1;
-                    Body stickyPartBody = dale.getStickyPart() == bd1 ? body1 : body2;
-                    vectorCache.set(stickyPartBody.getPosition()).sub(bodyA.getPosition());
-                    dale.setGrappleAttachedBody(bodyA);
-                    dale.setGrappleAttachedBodyLocalAnchor(vectorCache);
-                }
-            }
-
+        if (tag1.kind == FixtureTag.Kind.GROUND_SENSOR) {
             // See if we have landed on the ground.
-            if (dale.getSensorName().equals(fd2) || dale.getSensorName().equals(fd1)) {
-                dale.setGrounded(true);
-                sensorFixtures.add(dale == bd1 || dale.getBodyPart() == bd1 ? fix2 : fix1); // Could have more than one ground
-            }
-
-            // Check for win condition
-            if (((bd1 == dale || bd1 == dale.getBodyPart()) && bd2 == sceneModel.goalDoor) ||
-                    (bd1 == sceneModel.goalDoor && (bd2 == dale && bd2 == dale.getBodyPart()))) {
-                dale.setWinLose(true);
-            }
-
-            if (((bd1 == dale || bd1 == dale.getBodyPart()) && isFly(bd2)) ||
-                    (isFly(bd2) && (bd1 == dale || bd1 == dale.getBodyPart()))) {
-                flyCatch = isFly(bd1) ? (FlyModel) bd1 : (FlyModel) bd2;
-                flyCatch.setVisible(false);
-                dale.setWinLose(false);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+            push(GROUND_BEGIN, fix2, 0, 0);
+        } else if (tag1.kind != FixtureTag.Kind.DALE) {
+            return;
         }
 
-    }
-
-    private boolean isFly(Obstacle ob){
-        try{
-            FlyModel f = (FlyModel) ob;
-            return true;
-        } catch (Exception e){
-            return false;
+        Body body1 = fix1.getBody();
+        if (body1.getUserData() == dale.getStickyPart()) {
+            // The tongue sticky part has hit something
+            if (tag2.reflective) {
+                push(GRAPPLE_REFLECT, null, 0, 0);
+            } else {
+                // The joint is made after the step, where the tongue was when it hit
+                Body body2 = fix2.getBody();
+                push(GRAPPLE_HIT, body2, body1.getPosition().x - body2.getPosition().x,
+                        body1.getPosition().y - body2.getPosition().y);
+            }
+        } else if (tag2.kind == FixtureTag.Kind.GOAL) {
+            // Check for win condition
+            push(GOAL, null, 0, 0);
+        } else if (tag2.kind == FixtureTag.Kind.FLY) {
+            push(FLY_CATCH, tag2.owner, 0, 0);
         }
     }
 
@@ -114,22 +123,108 @@ public class CollisionController implements ContactListener {
         Fixture fix1 = contact.getFixtureA();
         Fixture fix2 = contact.getFixtureB();
 
-        Body body1 = fix1.getBody();
-        Body body2 = fix2.getBody();
+        if (FixtureTag.of(fix1.getUserData()).kind == FixtureTag.Kind.GROUND_SENSOR) {
+            push(GROUND_END, fix2, 0, 0);
+        } else if (FixtureTag.of(fix2.getUserData()).kind == FixtureTag.Kind.GROUND_SENSOR) {
+            push(GROUND_END, fix1, 0, 0);
+        }
+    }
 
-        Object fd1 = fix1.getUserData();
-        Object fd2 = fix2.getUserData();
+    /**
+     * Applies the contacts reported since the last call, in the order they happened
+     *
+     * Call this after every world step, while the world is unlocked.
+     */
+    public void processEvents() {
+        while (size > 0) {
+            int type = eventTypes[head];
+            Object target = eventTargets[head];
+            float anchorX = eventAnchors[2 * head];
+            float anchorY = eventAnchors[2 * head + 1];
+            eventTargets[head] = null;
+            head = (head + 1) & (eventTypes.length - 1);
+            size--;
+
+            switch (type) {
+                case GRAPPLE_HIT:
+                    if (dale.getGrappleState() == DaleModel.GrappleState.EXTENDING) {
+                        // DaleController makes the weld joint from the attached body and anchor
+                        dale.setGrappleAttachedBody((Body) target);
+                        dale.setGrappleAttachedBodyLocalAnchor(vectorCache.set(anchorX, anchorY));
+                    }
+                    break;
+                case GRAPPLE_REFLECT:
+                    if (dale.getGrappleState() == DaleModel.GrappleState.EXTENDING) {
+                        dale.setHitReflectiveFlag(true);
+                    }
+                    break;
+                case GROUND_BEGIN:
+                    dale.setGrounded(true);
+                    sensorFixtures.add((Fixture) target); // Could have more than one ground
+                    break;
+                case GROUND_END:
+                    sensorFixtures.remove((Fixture) target);
+                    if (sensorFixtures.size == 0) {
+                        dale.setGrounded(false);
+                    }
+                    break;
+                case GOAL:
+                    dale.setWinLose(true);
+                    break;
+                case FLY_CATCH:
+                    flyCatch = (FlyModel) target;
+                    flyCatch.setVisible(false);
+                    dale.setWinLose(false);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
 
-        Object bd1 = body1.getUserData();
-        Object bd2 = body2.getUserData();
+    /**
+     * Adds an event to the back of the queue, growing it if it is full
+     *
+     * @param type    The event type
+     * @param target  The body, fixture or fly the event is about
+     * @param anchorX The x-coordinate of the grapple anchor, if any
+     * @param anchorY The y-coordinate of the grapple anchor, if any
+     */
+    private void push(int type, Object target, float anchorX, float anchorY) {
+        if (size == eventTypes.length) {
+            grow();
+        }
+        int tail = (head + size) & (eventTypes.length - 1);
+        eventTypes[tail] = type;
+        eventTargets[tail] = target;
+        eventAnchors[2 * tail] = anchorX;
+        eventAnchors[2 * tail + 1] = anchorY;
+        size++;
+    }
 
-        if (dale.getSensorName().equals(fd2) || dale.getSensorName().equals(fd1)) {
-            sensorFixtures.remove(dale == bd1 || dale.getBodyPart() == bd1 ? fix2 : fix1);
-            if (sensorFixtures.size == 0) {
-                dale.setGrounded(false);
-            }
+    /**
+     * Doubles the capacity of the queue, keeping the events in order
+     *
+     * Ground events must never be dropped, or Dale could be left grounded in mid air.
+     */
+    private void grow() {
+        int capacity = eventTypes.length;
+        int[] types = new int[2 * capacity];
+        Object[] targets = new Object[2 * capacity];
+        float[] anchors = new float[4 * capacity];
+        for (int ii = 0; ii < size; ii++) {
+            int index = (head + ii) & (capacity - 1);
+            types[ii] = eventTypes[index];
+            targets[ii] = eventTargets[index];
+            anchors[2 * ii] = eventAnchors[2 * index];
+            anchors[2 * ii + 1] = eventAnchors[2 * index + 1];
         }
+        eventTypes = types;
+        eventTargets = targets;
+        eventAnchors = anchors;
+        head = 0;
     }
+
     /** Unused ContactListener method */
     public void postSolve(Contact contact, ContactImpulse impulse) {}
     /** Unused ContactListener method */
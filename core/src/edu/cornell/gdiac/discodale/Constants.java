@@ -19,10 +19,12 @@ public class Constants {
     public static final int EXIT_PAUSE = 6;
     /** Exit code for resuming the game */
     public static final int EXIT_RESUME = 7;
-    /** How many frames after winning/losing do we continue? */
+    /** How many physics steps after winning/losing do we continue? */
     public static final int EXIT_COUNT = 120;
     /** The amount of time for a physics engine step. */
     public static final float WORLD_STEP = 1/60.0f;
+    /** The most physics steps to take in one frame; any more time than this is dropped */
+    public static final int MAX_SUBSTEPS = 5;
     /** Number of velocity iterations for the constrain solvers */
     public static final int WORLD_VELOC = 6;
     /** Number of position iterations for the constrain solvers */
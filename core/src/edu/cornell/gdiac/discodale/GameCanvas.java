@@ -78,6 +78,9 @@ public class GameCanvas {
 	/** Camera for the underlying SpriteBatch */
 	private OrthographicCamera camera;
 
+	/** The offscreen buffer being drawn into, if any */
+	private FrameBuffer offscreen;
+
 	/** Camera for SpriteBatch, but doesn't get transformed/rotated/whatever */
 	private OrthographicCamera cameraStatic;
 	
@@ -92,6 +95,8 @@ public class GameCanvas {
 	/** Affine cache for all sprites this drawing pass */
 	private Matrix4 global;
 	private Vector2 vertex;
+	/** Cache object to hold transformed polygon vertices */
+	private float[] polygonCache = new float[0];
 	/** Cache object to handle raw textures */
 	private TextureRegion holder;
 
@@ -396,6 +401,41 @@ public class GameCanvas {
 	}
 
 
+	/**
+	 * Start drawing into an offscreen buffer instead of the screen.
+	 *
+	 * The buffer is cleared to transparent, and its bottom left corner shows the point
+	 * (x,y) in screen coordinates, one pixel per pixel.  Colors are written with
+	 * pre-multiplied alpha, so the result should be drawn with {@link #drawPremultiplied}.
+	 *
+	 * @param buffer The buffer to draw into
+	 * @param x      The x-coordinate shown at the left edge of the buffer
+	 * @param y      The y-coordinate shown at the bottom edge of the buffer
+	 */
+	public void beginOffscreen(FrameBuffer buffer, float x, float y) {
+		offscreen = buffer;
+		buffer.begin();
+		Gdx.gl.glClearColor(0, 0, 0, 0);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		global.setToOrtho2D(x, y, buffer.getWidth(), buffer.getHeight());
+		spriteBatch.setProjectionMatrix(global);
+		spriteBatch.setBlendFunctionSeparate(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA,
+				GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		spriteBatch.begin();
+		active = DrawPass.STANDARD;
+	}
+
+	/**
+	 * Ends drawing into an offscreen buffer, and returns to drawing on the screen.
+	 */
+	public void endOffscreen() {
+		spriteBatch.end();
+		offscreen.end();
+		offscreen = null;
+		spriteBatch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		active = DrawPass.INACTIVE;
+	}
+
 	/**
 	 * Start a standard drawing sequence.
 	 *
@@ -473,6 +513,16 @@ public class GameCanvas {
 		return camera.position.y;
 	}
 
+	/** Returns the width of the area the camera shows, in screen coordinates */
+	public float getCameraViewWidth() {
+		return camera.viewportWidth * camera.zoom;
+	}
+
+	/** Returns the height of the area the camera shows, in screen coordinates */
+	public float getCameraViewHeight() {
+		return camera.viewportHeight * camera.zoom;
+	}
+
 	public void cameraPan(float startX, float startY, float endX, float endY, Rectangle bounds, int tileSize, float fr) {
 		float transX = ((endX - startX) / fr);
 		float transY = ((endY - startY) / fr);
@@ -694,6 +744,33 @@ public class GameCanvas {
 		spriteBatch.draw(region, x,  y);
 	}
 
+	/**
+	 * Draws a texture whose colors have pre-multiplied alpha at the given position.
+	 *
+	 * Use this for the contents of an offscreen buffer (@see beginOffscreen).  The
+	 * blend function of the current pass is restored afterwards.
+	 *
+	 * @param region The texture to draw
+	 * @param x 	The x-coordinate of the bottom left corner
+	 * @param y 	The y-coordinate of the bottom left corner
+	 */
+	public void drawPremultiplied(TextureRegion region, float x, float y) {
+		if (active != DrawPass.STANDARD) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+			return;
+		}
+
+		// Changing the blend function flushes the batch, so keep this to a few large textures
+		int src = spriteBatch.getBlendSrcFunc();
+		int dst = spriteBatch.getBlendDstFunc();
+		int srcAlpha = spriteBatch.getBlendSrcFuncAlpha();
+		int dstAlpha = spriteBatch.getBlendDstFuncAlpha();
+		spriteBatch.setBlendFunction(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		spriteBatch.setColor(Color.WHITE);
+		spriteBatch.draw(region, x, y);
+		spriteBatch.setBlendFunctionSeparate(src, dst, srcAlpha, dstAlpha);
+	}
+
 	/**
 	 * Draws the tinted texture at the given position.
 	 *
@@ -1026,28 +1103,26 @@ public class GameCanvas {
 			return;
 		}
 
-		local.set(affine);
-		local.translate(-ox,-oy);
-		computeVertices(local,region.getVertices());
-
-		spriteBatch.setColor(tint);
-		spriteBatch.draw(region, 0, 0);
-		
-		// Invert and restore
-		local.inv();
-		computeVertices(local,region.getVertices());
-	}
-	
-	/**
-	 * Transform the given vertices by the affine transform
-	 */
-	private void computeVertices(Affine2 affine, float[] vertices) {
-		for(int ii = 0; ii < vertices.length; ii += 2) {
-			vertex.set(vertices[2*ii], vertices[2*ii+1]);
-			affine.applyTo(vertex);
-			vertices[2*ii  ] = vertex.x;
-			vertices[2*ii+1] = vertex.y;
+		// Write the transformed vertices straight into the batch format (x, y, color, u, v),
+		// leaving the region untouched
+		float[] points = region.getVertices();
+		float[] coords = region.getTextureCoords();
+		int count = points.length / 2 * 5;
+		if (polygonCache.length < count) {
+			polygonCache = new float[count];
+		}
+		float color = tint.toFloatBits();
+		for (int ii = 0, jj = 0; ii < points.length; ii += 2, jj += 5) {
+			float x = points[ii  ] - ox;
+			float y = points[ii+1] - oy;
+			polygonCache[jj  ] = affine.m00 * x + affine.m01 * y + affine.m02;
+			polygonCache[jj+1] = affine.m10 * x + affine.m11 * y + affine.m12;
+			polygonCache[jj+2] = color;
+			polygonCache[jj+3] = coords[ii  ];
+			polygonCache[jj+4] = coords[ii+1];
 		}
+		short[] triangles = region.getTriangles();
+		spriteBatch.draw(region.getRegion().getTexture(), polygonCache, 0, count, triangles, 0, triangles.length);
 	}
 
     /**
@@ -1274,6 +1349,40 @@ public class GameCanvas {
 		x1 = vertex.x; y1 = vertex.y;
 		debugRender.line(x0, y0, x1, y1);
     }
+
+    /**
+     * Draws the outline of the given chain in the specified color
+     *
+     * @param shape The Box2d shape
+     * @param color The outline color
+     * @param x  The x-coordinate of the shape position
+     * @param y  The y-coordinate of the shape position
+     * @param angle  The shape angle of rotation
+     * @param sx The amount to scale the x-axis
+     * @param sy The amount to scale the y-axis
+     */
+    public void drawPhysics(ChainShape shape, Color color, float x, float y, float angle, float sx, float sy) {
+		if (active != DrawPass.DEBUG) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active beginDebug()", new IllegalStateException());
+			return;
+		}
+		local.setToScaling(sx,sy);
+		local.translate(x,y);
+		local.rotateRad(angle);
+
+    	float x0, y0, x1, y1;
+    	debugRender.setColor(color);
+    	// Loops repeat their first vertex at the end, so every segment is drawn
+    	for(int ii = 0; ii < shape.getVertexCount()-1; ii++) {
+    		shape.getVertex(ii  ,vertex);
+    		local.applyTo(vertex);
+    		x0 = vertex.x; y0 = vertex.y;
+    		shape.getVertex(ii+1,vertex);
+    		local.applyTo(vertex);
+    		x1 = vertex.x; y1 = vertex.y;
+    		debugRender.line(x0, y0, x1, y1);
+    	}
+    }
     
     /** 
      * Draws the outline of the given shape in the specified color
@@ -25,9 +25,19 @@ import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.JsonValue;
-
+import com.badlogic.gdx.utils.TimeUtils;
+
+import edu.cornell.gdiac.discodale.ai.AStarPathfinder;
+import edu.cornell.gdiac.discodale.ai.DStarLitePathfinder;
+import edu.cornell.gdiac.discodale.ai.FlowField;
+import edu.cornell.gdiac.discodale.ai.HierarchicalPathfinder;
+import edu.cornell.gdiac.discodale.ai.JumpPointPathfinder;
+import edu.cornell.gdiac.discodale.ai.Pathfinder;
+import edu.cornell.gdiac.discodale.ai.ThetaStarPathfinder;
+import edu.cornell.gdiac.discodale.ai.VisibilityEngine;
 import edu.cornell.gdiac.discodale.controllers.DaleController;
 import edu.cornell.gdiac.discodale.controllers.FlyController;
+import edu.cornell.gdiac.discodale.controllers.FlyScheduler;
 
 import edu.cornell.gdiac.discodale.models.*;
 import edu.cornell.gdiac.assets.AssetDirectory;
@@ -100,11 +110,15 @@ public class GameMode implements Screen {
 
 	private float zoomFactor;
 	private float zoomValue;
+	/** The zoom of the camera while it zooms in on Dale */
+	private float followZoom;
 	private int ticks;
 	private int cam_ticks;
 
 	/** The Box2D world */
 	protected World world;
+	/** Frame time not yet simulated, always less than one physics step after postUpdate */
+	private float stepAccumulator;
 	/** The boundary of the world */
 	protected Rectangle bounds;
 	/** The world scale */
@@ -118,7 +132,7 @@ public class GameMode implements Screen {
 	protected boolean failed;
 	/** Whether or not debug mode is active */
 	protected boolean debug;
-	/** Countdown active for winning or losing */
+	/** Countdown active for winning or losing, in physics steps */
 	protected int countdown;
 
 	/** Time since level started (after camera movement ends) */
@@ -153,6 +167,12 @@ public class GameMode implements Screen {
 	private Texture flyIdleTexture;
 	private Texture flyChaseTexture;
 
+	/** Tongue textures, drawn once and shared by every Dale */
+	private Texture tongueTexture;
+	private Texture tongueTextureOutline;
+	private Texture stickyPartTexture;
+	private Texture stickyPartTextureOutline;
+
 	private Texture[] colors = new Texture[5];
 
 	private TextureRegion light;
@@ -221,6 +241,20 @@ public class GameMode implements Screen {
 	}
 
 	private LinkedList<FlyController> flyControllers;
+	/** Pathfinding strategy for the flies */
+	private Pathfinder.Mode pathfinderMode;
+	/** Pathfinder shared by every fly, sized for the current scene grid (null if per-fly) */
+	private Pathfinder pathfinder;
+	/** Spreads fly decisions across frames */
+	private FlyScheduler flyScheduler;
+	/** Traces sight lines from Dale to the flies over the scene grid */
+	private VisibilityEngine visibility;
+	/** Whether flies trace their own sight line or share Dale's field of view */
+	private VisibilityEngine.Mode sightMode;
+	/** Checks sight lines against moving bodies */
+	private final SightCallback sightCallback = new SightCallback();
+	/** The visible part of the world this frame, in world units */
+	private final Rectangle flyView = new Rectangle();
 
 	private float colorChangeCountdown;
 
@@ -431,6 +465,7 @@ public class GameMode implements Screen {
 	 */
 	protected GameMode(Rectangle bounds, Vector2 gravity) {
 		world = new World(gravity, false);
+		world.setAutoClearForces(false);
 		this.bounds = new Rectangle(bounds);
 		this.scale = new Vector2(1, 1);
 		complete = false;
@@ -452,6 +487,15 @@ public class GameMode implements Screen {
 		objects.clear();
 		addQueue.clear();
 		world.dispose();
+		if (scene != null) {
+			scene.dispose();
+		}
+		if (tongueTexture != null) {
+			tongueTexture.dispose();
+			tongueTextureOutline.dispose();
+			stickyPartTexture.dispose();
+			stickyPartTextureOutline.dispose();
+		}
 		objects = null;
 		addQueue = null;
 		bounds = null;
@@ -508,6 +552,7 @@ public class GameMode implements Screen {
 	 * This method disposes of the world and creates a new one.
 	 */
 	public void reset() {
+		long startTime = TimeUtils.nanoTime();
 		Vector2 gravity = new Vector2(world.getGravity());
 		for (Obstacle obj : objects) {
 			obj.deactivatePhysics(world);
@@ -518,19 +563,62 @@ public class GameMode implements Screen {
 		world.dispose();
 
 		world = new World(gravity, false);
+		world.setAutoClearForces(false);
 		world.setContactListener(this.collisionController);
-		setComplete(false);
-		setFailure(false);
-		countdown = -1;
-		levelTime = 0;
-		wasNewBestTime = false;
-		colorChangeCountdown = CHANGE_COLOR_TIME;
+		resetPlayState();
 		loadLevel(levelIndex);
+		assert ColorRegionModel.getPixelUsers() == scene.getColorRegions().size()
+				&& ColorRegionModel.getTextureCount() <= 1 : "Color region textures leaked";
 		isNewLevel = false;
 		// this.scene = levelLoader.load(this.testlevel, constants.get("defaults"), new Rectangle(0, 0, canvas.width, canvas.height));
 		this.scene.setCanvas(canvas);
 		populateLevel();
 		this.scene.updateGrid();
+		if (pathfinder != null) {
+			pathfinder.prepare();
+		}
+		Gdx.app.debug("GameMode", "Level reset: " + TimeUtils.timeSinceNanos(startTime) / 1000 + " us, "
+				+ scene.getTileCount() + " tiles in " + scene.getTileShapeCount() + " shapes, "
+				+ scene.getColorEdgeCellCount() + " color edge cells");
+	}
+
+	/**
+	 * Restarts the current level without rebuilding it.
+	 *
+	 * The world, the level geometry, the grid and the fly pathfinder are kept. Only Dale
+	 * and the flies are rebuilt, and the color regions and spotlight go back to where
+	 * they started. Use {@link #reset} when the level itself changes.
+	 */
+	public void restart() {
+		long startTime = TimeUtils.nanoTime();
+		for (Obstacle obj : objects) {
+			obj.deactivatePhysics(world);
+		}
+		objects.clear();
+		addQueue.clear();
+		resetPlayState();
+		ticks = 0;
+		cam_ticks = 0;
+		setCameraState(CameraState.PLAY);
+		scene.resetColorRegions();
+
+		populateLevelDale();
+		populateLevelFlies();
+		resetSpotlight();
+		Gdx.app.debug("GameMode", "Level restart: " + TimeUtils.timeSinceNanos(startTime) / 1000 + " us");
+	}
+
+	/**
+	 * Clears the timers and flags of the current attempt
+	 */
+	private void resetPlayState() {
+		stepAccumulator = 0;
+		setComplete(false);
+		setFailure(false);
+		countdown = -1;
+		levelTime = 0;
+		wasNewBestTime = false;
+		colorChangeCountdown = CHANGE_COLOR_TIME;
 	}
 
 	/**
@@ -539,6 +627,37 @@ public class GameMode implements Screen {
 	private void populateLevel() {
 		populateLevelDale();
 
+		pathfinderMode = Pathfinder.Mode.valueOf(
+				constants.get("fly").getString("pathfinding", Pathfinder.Mode.FLOWFIELD.name()).toUpperCase());
+		pathfinder = pathfinderMode.isShared() ? createPathfinder(pathfinderMode) : null;
+		populateLevelFlies();
+
+		scene.activatePhysics(this.world);
+
+		JsonValue defaults = constants.get("defaults");
+
+		// This world is heavier
+		world.setGravity(new Vector2(0, defaults.getFloat("gravity", 0)));
+
+		resetSpotlight();
+	}
+
+	/**
+	 * Moves the spotlight back to the start of its path
+	 */
+	private void resetSpotlight() {
+		float[] path = scene.getSpotlightPath();
+		spotlightX = path[0];
+		spotlightY = path[1];
+		spotlightTargetPointIndex = 1;
+	}
+
+	/**
+	 * Populate the level with flies, and the controllers that watch Dale
+	 *
+	 * Dale must already be in the level.
+	 */
+	private void populateLevelFlies() {
 		float width = FLY_SIZE / scale.x;
 		float height = FLY_SIZE / scale.y;
 		flies = new PooledList<>();
@@ -549,24 +668,50 @@ public class GameMode implements Screen {
 			fly.initializeTexture(flyIdleTexture, flyChaseTexture);
 			flies.add(fly);
 			addObject(fly);
-			flyControllers.add(new FlyController(fly, dale, scene));
+			flyControllers.add(new FlyController(fly, dale, scene,
+					pathfinder != null ? pathfinder : createPathfinder(pathfinderMode)));
 		}
 
-		collisionController = new CollisionController(this.dale, this.flies, this.scene);
+		// Keep fly paths away from gaps their hitbox cannot fit through
+		int clearance = 1;
+		for (FlyModel fly : flies) {
+			clearance = Math.max(clearance, SceneModel.clearanceFor(fly.getWidth(), fly.getHeight()));
+		}
+		scene.setFlyClearance(clearance);
 
-		world.setContactListener(this.collisionController);
+		flyScheduler = new FlyScheduler(flyControllers, dale, constants.get("fly").get("schedule"));
+		visibility = new VisibilityEngine(scene);
+		sightMode = VisibilityEngine.Mode.valueOf(
+				constants.get("fly").getString("sight", VisibilityEngine.Mode.FOV.name()).toUpperCase());
 
-		scene.activatePhysics(this.world);
+		collisionController = new CollisionController(this.dale);
 
-		JsonValue defaults = constants.get("defaults");
-
-		// This world is heavier
-		world.setGravity(new Vector2(0, defaults.getFloat("gravity", 0)));
+		world.setContactListener(this.collisionController);
+	}
 
-		float[] path = scene.getSpotlightPath();
-		spotlightX = path[0];
-		spotlightY = path[1];
-		spotlightTargetPointIndex = 1;
+	/**
+	 * Create a fly pathfinder for the current scene
+	 *
+	 * @param mode The strategy, as selected by the "pathfinding" fly constant
+	 *
+	 * @return a pathfinder for the current scene
+	 */
+	private Pathfinder createPathfinder(Pathfinder.Mode mode) {
+		switch (mode) {
+			case ASTAR:
+				return new AStarPathfinder(scene);
+			case JPS:
+				return new JumpPointPathfinder(scene);
+			case DSTARLITE:
+				return new DStarLitePathfinder(scene);
+			case HPA:
+				return new HierarchicalPathfinder(scene);
+			case THETA:
+				return new ThetaStarPathfinder(scene);
+			case FLOWFIELD:
+			default:
+				return new FlowField(scene);
+		}
 	}
 
 	/**
@@ -600,23 +745,31 @@ public class GameMode implements Screen {
 		dale.setDrawScale(scale);
 		dale.setColor(daleBackground());
 
-		// Texture for tongue
-		Pixmap tonguePixmap = new Pixmap(1, 10, Pixmap.Format.RGBA8888);
-		tonguePixmap.setColor(Color.PINK);
-		tonguePixmap.fillRectangle(0, 2, 1, 6);
-		dale.setTongueTexture(new Texture(tonguePixmap));
-		tonguePixmap.setColor(Color.BLACK);
-		tonguePixmap.fill();
-		dale.setTongueTextureOutline(new Texture(tonguePixmap));
-
-		// Texture for tongue sticky part
-		Pixmap stickyPartPixmap = new Pixmap(13, 13, Pixmap.Format.RGBA8888);
-		stickyPartPixmap.setColor(Color.PINK);
-		stickyPartPixmap.fillCircle(6, 6, 4);
-		dale.setStickyPartTexture(new Texture(stickyPartPixmap));
-		stickyPartPixmap.setColor(Color.BLACK);
-		stickyPartPixmap.fillCircle(6, 6, 6);
-		dale.setStickyPartTextureOutline(new Texture(stickyPartPixmap));
+		if (tongueTexture == null) {
+			// Texture for tongue
+			Pixmap tonguePixmap = new Pixmap(1, 10, Pixmap.Format.RGBA8888);
+			tonguePixmap.setColor(Color.PINK);
+			tonguePixmap.fillRectangle(0, 2, 1, 6);
+			tongueTexture = new Texture(tonguePixmap);
+			tonguePixmap.setColor(Color.BLACK);
+			tonguePixmap.fill();
+			tongueTextureOutline = new Texture(tonguePixmap);
+			tonguePixmap.dispose();
+
+			// Texture for tongue sticky part
+			Pixmap stickyPartPixmap = new Pixmap(13, 13, Pixmap.Format.RGBA8888);
+			stickyPartPixmap.setColor(Color.PINK);
+			stickyPartPixmap.fillCircle(6, 6, 4);
+			stickyPartTexture = new Texture(stickyPartPixmap);
+			stickyPartPixmap.setColor(Color.BLACK);
+			stickyPartPixmap.fillCircle(6, 6, 6);
+			stickyPartTextureOutline = new Texture(stickyPartPixmap);
+			stickyPartPixmap.dispose();
+		}
+		dale.setTongueTexture(tongueTexture);
+		dale.setTongueTextureOutline(tongueTextureOutline);
+		dale.setStickyPartTexture(stickyPartTexture);
+		dale.setStickyPartTextureOutline(stickyPartTextureOutline);
 
 		addObject(dale);
 		daleController = new DaleController(this.dale);
@@ -675,7 +828,7 @@ public class GameMode implements Screen {
 
 		// Handle resets
 		if (input.didReset()) {
-			reset();
+			restart();
 		}
 
 		if (input.didZoomOut() && getCameraState() == camState.PLAY) {
@@ -701,12 +854,9 @@ public class GameMode implements Screen {
 			pause();
 			listener.exitScreen(this, Constants.EXIT_PREV);
 			return false;
-		} else if (countdown > 0) {
-			countdown--;
-//			System.out.println(countdown);
 		} else if (countdown == 0) {
 			if (failed) {
-				reset();
+				restart();
 			} else if (complete) {
 				// Possibly save new best time
 				float previousBestTime = SaveManager.getInstance().getBestTime("level" + (levelIndex + 1));
@@ -723,12 +873,8 @@ public class GameMode implements Screen {
 	}
 
 	private DaleColor daleBackground() {
-		for (ColorRegionModel c : scene.getColorRegions()) {
-			if (c.shape.contains(dale.getX() * scale.x, dale.getY() * scale.y)) {
-				return c.getColor();
-			}
-		}
-		return null;
+		ColorRegionModel c = scene.getColorRegionAt(dale.getX() * scale.x, dale.getY() * scale.y);
+		return c == null ? null : c.getColor();
 	}
 
 	private boolean daleMatches() {
@@ -775,28 +921,18 @@ public class GameMode implements Screen {
 		return;
 	}
 
-	class FixtureAndDistance{
-		public Fixture fixture;
-		public float distance;
-		public FixtureAndDistance(Fixture fixture,float distance){
-			this.fixture = fixture;
-			this.distance = distance;
-		}
-	}
-
-	class CustomizedRayCastCallBack implements RayCastCallback{
-		public LinkedList<FixtureAndDistance> fixtureAndDistances = new LinkedList<>();
-		public void reset(){
-			fixtureAndDistances = new LinkedList<>();
-		}
+	/** Looks for opaque moving bodies that block a sight line */
+	class SightCallback implements RayCastCallback{
+		public boolean blocked;
 		@Override
 		public float reportRayFixture(Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
-			float diffX = Math.abs(point.x - dale.getX());
-			float diffY = Math.abs(point.y - dale.getY());
-			float distance = (float) Math.sqrt((double)(diffX*diffX) + (double)(diffY*diffY));
-			fixtureAndDistances.add(new FixtureAndDistance(fixture,distance));
-
-			return 1;
+			// Static geometry is already handled by the visibility grid
+			if (fixture.getBody().getType() == BodyDef.BodyType.StaticBody || fixture.isSensor()
+					|| FixtureTag.of(fixture.getUserData()).seeThrough) {
+				return -1;
+			}
+			blocked = true;
+			return 0;
 		}
 	}
 
@@ -830,9 +966,6 @@ public class GameMode implements Screen {
 		}
 
 		int winLose = dale.getWinLose();
-		if(scene.isSpotlightMode()){
-			updateSpotlightPosition();
-		}
 		
 		ticks++;
 		if (ticks % 13 == 0) {
@@ -876,6 +1009,7 @@ public class GameMode implements Screen {
 						time);
 				if (cam_ticks >= time + START_HOLD) {
 					zoomFactor = (zoomValue - zoom_amount) / ZOOM_TIME;
+					followZoom = canvas.getCameraZoom();
 					setCameraState(CameraState.ZOOM);
 				} else {
 					cam_ticks++;
@@ -885,24 +1019,11 @@ public class GameMode implements Screen {
 				if (canvas.getCameraZoom() <= zoom_amount) {
 					setCameraState(CameraState.PLAY);
 				} else {
-					float zoom = canvas.getCameraZoom();
-					canvas.updateCam(
-							dale.getX() * scale.x,
-							dale.getY() * scale.y,
-							zoom - zoomFactor,
-							this.bounds,
-							this.scene.getTileSize()
-					);
+					// The camera follows Dale in draw, once the step is interpolated
+					followZoom = canvas.getCameraZoom() - zoomFactor;
 				}
 				break;
 			case PLAY:
-				canvas.updateCam(
-						dale.getX() * scale.x,
-						dale.getY() * scale.y,
-						zoom_amount,
-						this.bounds,
-						this.scene.getTileSize()
-				);
 				if (dale.getVisible()){
 					daleController.processMovement();
 					daleController.processColorRotation();
@@ -912,10 +1033,14 @@ public class GameMode implements Screen {
 				}
 				isAlert = false;
 
+				float viewWidth = canvas.getCameraViewWidth() / scale.x;
+				float viewHeight = canvas.getCameraViewHeight() / scale.y;
+				flyView.set(canvas.getCameraX() / scale.x - viewWidth / 2, canvas.getCameraY() / scale.y - viewHeight / 2,
+						viewWidth, viewHeight);
+				flyScheduler.update(flyView);
 				for (FlyController flyController : flyControllers) {
 					if (flyController.shouldChaseDale())
 						isAlert = true;
-					flyController.changeDirection();
 					flyController.setVelocity();
 				}
 				if (isAlert) {
@@ -938,8 +1063,10 @@ public class GameMode implements Screen {
 				if (dale.getY() * scale.y < -150 && winLose != WIN_CODE) {
 					winLose = LOSE_CODE;
 				}
-//				scene.updateGrid();
-				scene.updateColorRegionMovement();
+				scene.updateGridRegions();
+				if (pathfinder != null) {
+					pathfinder.prepare();
+				}
 				break;
 			case FAIL:
 				canvas.updateCam(
@@ -983,74 +1110,44 @@ public class GameMode implements Screen {
 			levelTime += dt;
 		}
 
-		CustomizedRayCastCallBack callback = new CustomizedRayCastCallBack();
-
 		if(scene.isRealSightMode()){
-			for(FlyController f:flyControllers){
-				f.setSeeDaleInRealWorld(false);
+			boolean shared = sightMode == VisibilityEngine.Mode.FOV;
+			if(shared){
+				visibility.computeFieldOfView(dale.getX(),dale.getY());
 			}
 			for(FlyController f:flyControllers){
 				FlyModel fly = f.getFly();
-//				System.out.println("startRay");
-//				System.out.println(dale.getX() +"  "+ dale.getY() +"  "+fly.getX() +"  "+fly.getY());
-				callback.reset();
-				world.rayCast(callback,dale.getX(),dale.getY(),fly.getX(),fly.getY());
-				LinkedList<FixtureAndDistance> fixtureAndDistances = callback.fixtureAndDistances;
-				Collections.sort(fixtureAndDistances,new Comparator<FixtureAndDistance>(){
-					public int compare(FixtureAndDistance f1,FixtureAndDistance f2){
-						if(f1.distance>f2.distance){
-							return 1;
-						}
-						else if(f1.distance==f2.distance){
-							return 0;
-						}else{
-							return -1;
-						}
-					}
-				});
-				for(FixtureAndDistance fd: fixtureAndDistances){
-					Fixture fixture = fd.fixture;
-					boolean canSeeThrough = false;
-					// check if it is a fly
-					for(FlyController ff:flyControllers){
-						FlyModel flyModel = ff.getFly();
-						for(Fixture flyModelFixture: flyModel.getBody().getFixtureList()){
-							if (fixture==flyModelFixture){
-//								System.out.println(flyModel.getX() +"  "+flyModel.getY() + fd.distance);
-								canSeeThrough = true;
-								ff.setSeeDaleInRealWorld(true);
-							}
-						}
-					}
-					// check if it is a scaffold
-					for(Obstacle obs : scene.getSeeThroughObstacles()){
-						Body obsBody = obs.getBody();
-						for(Fixture obsFixture : obsBody.getFixtureList()){
-							if(fixture == obsFixture){
-								canSeeThrough = true;
-							}
-						}
-					}
-					// check if it is within Dale
-					if(dale.checkFixtureInDale(fixture)){
-						canSeeThrough = true;
-					}
-					if(!canSeeThrough){
-						break;
-					}
+				boolean sees = shared ? visibility.isVisible(fly.getX(),fly.getY())
+						: visibility.canSee(dale.getX(),dale.getY(),fly.getX(),fly.getY());
+				if(sees){
+					sightCallback.blocked = false;
+					world.rayCast(sightCallback,dale.getX(),dale.getY(),fly.getX(),fly.getY());
+					sees = !sightCallback.blocked;
 				}
-//				System.out.println("endRay");
+				f.setSeeDaleInRealWorld(sees);
 			}
-//			for(FlyController f:flyControllers){
-//				if(f.getSeeDaleInRealWorld()){
-//					System.out.println("Can see");
-//				}
-//			}
-
 		}
 
 	}
 
+	/**
+	 * Advances the level by one physics step
+	 *
+	 * Anything that moves by a fixed amount at a time runs here, so that it keeps the same
+	 * speed whatever the frame rate of the display.
+	 */
+	private void stepLevel() {
+		if (camState == CameraState.PLAY) {
+			scene.updateColorRegionMovement();
+		}
+		if (scene.isSpotlightMode()) {
+			updateSpotlightPosition();
+		}
+		if (countdown > 0) {
+			countdown--;
+		}
+	}
+
 	/**
 	 * Processes physics
 	 *
@@ -1067,8 +1164,26 @@ public class GameMode implements Screen {
 			addObject(addQueue.poll());
 		}
 
-		// Turn the physics engine crank.
-		world.step(Constants.WORLD_STEP, Constants.WORLD_VELOC, Constants.WORLD_POSIT);
+		// Turn the physics engine crank once for every whole step of elapsed time.
+		// A long frame is cut off at MAX_SUBSTEPS so that we never fall further behind.
+		stepAccumulator = Math.min(stepAccumulator + dt, Constants.MAX_SUBSTEPS * Constants.WORLD_STEP);
+		int steps = 0;
+		while (stepAccumulator >= Constants.WORLD_STEP) {
+			for (Obstacle obj : objects) {
+				obj.savePreviousTransform();
+			}
+			world.step(Constants.WORLD_STEP, Constants.WORLD_VELOC, Constants.WORLD_POSIT);
+			collisionController.processEvents();
+			stepLevel();
+			stepAccumulator -= Constants.WORLD_STEP;
+			steps++;
+		}
+		// Forces from this frame's input are held for each of its steps. A frame too short
+		// to step keeps them for the next step instead of dropping them.
+		if (steps > 0) {
+			world.clearForces();
+		}
+		Obstacle.setInterpolation(stepAccumulator / Constants.WORLD_STEP);
 
 		// Garbage collect the deleted objects.
 		// Note how we use the linked list nodes to delete O(1) in place.
@@ -1098,6 +1213,17 @@ public class GameMode implements Screen {
 	 * @param dt Number of seconds since last animation frame
 	 */
 	public void draw(float dt) {
+		if (camState == CameraState.ZOOM || camState == CameraState.PLAY) {
+			// Centre on Dale where he is drawn, between the last two steps
+			canvas.updateCam(
+					dale.getDrawX() * scale.x,
+					dale.getDrawY() * scale.y,
+					camState == CameraState.PLAY ? zoom_amount : followZoom,
+					this.bounds,
+					this.scene.getTileSize()
+			);
+		}
+		scene.bakeTiles(canvas);
 		canvas.clear();
 
 		if(scene.isDarkMode()){
@@ -1121,7 +1247,7 @@ public class GameMode implements Screen {
 			float h = light.getRegionHeight();
 			float w = light.getRegionWidth();
 			// Some magic number to determine the size of the light. Original size of light: 64 x 64
-			canvas.draw(light,new Color(256,256,256,0f),w*lightScale/2f,h*lightScale/2f,dale.getX()*scale.x,dale.getY()*scale.y,w*lightScale,h*lightScale);
+			canvas.draw(light,new Color(256,256,256,0f),w*lightScale/2f,h*lightScale/2f,dale.getDrawX()*scale.x,dale.getDrawY()*scale.y,w*lightScale,h*lightScale);
 			canvas.endLight();
 
 			// Draw darkness around light
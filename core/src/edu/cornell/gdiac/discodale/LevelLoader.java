@@ -103,6 +103,7 @@ public class LevelLoader {
                 addTutorial(model, layer);
             }
         }
+        model.indexColorRegions(defaults);
 
         return model;
     }
@@ -281,6 +282,7 @@ public class LevelLoader {
                 }
             }
         }
+        model.mergeTiles(defaults);
     }
 
     private float[] scaleRect(float[] rect) {
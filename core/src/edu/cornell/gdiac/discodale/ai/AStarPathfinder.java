@@ -0,0 +1,142 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import edu.cornell.gdiac.discodale.models.SceneModel;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+import java.util.Arrays;
+
+/**
+ * A* search over the scene occupancy grid.
+ *
+ * All search state lives in flat arrays sized once for the scene grid. Instead of clearing
+ * them before every search we bump a generation counter and treat any entry stamped with an
+ * older generation as untouched. A steady stream of searches therefore allocates nothing.
+ */
+public class AStarPathfinder implements Pathfinder {
+    /** The scene whose grid we search */
+    private final SceneModel scene;
+    private final int width;
+    private final int height;
+
+    /** Cost of the best known path from the start to each cell */
+    private final float[] gScore;
+    /** Previous cell on the best known path to each cell */
+    private final int[] parent;
+    /** Generation in which gScore/parent were last written */
+    private final int[] seen;
+    /** Generation in which the cell was expanded */
+    private final int[] closed;
+    /** The current search generation */
+    private int generation;
+    /** Open set, keyed by f = g + h */
+    private final IndexedMinHeap open;
+
+    /** Number of cells expanded by the last search */
+    private int expanded;
+
+    /**
+     * Creates a pathfinder sized for the grid of the given scene
+     *
+     * @param scene The scene to search
+     */
+    public AStarPathfinder(SceneModel scene) {
+        this.scene = scene;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int cells = width * height;
+        gScore = new float[cells];
+        parent = new int[cells];
+        seen = new int[cells];
+        closed = new int[cells];
+        open = new IndexedMinHeap(cells);
+        generation = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    public int getExpanded() {
+        return expanded;
+    }
+
+    @Override
+    public int findNextStep(int sx, int sy, int gx, int gy) {
+        expanded = 0;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        if (!inBounds(sx, sy) || GridMoves.blocked(grid, gx, gy)) {
+            return NO_PATH;
+        }
+        int start = sx + sy * width;
+        int goal = gx + gy * width;
+        if (start == goal) {
+            return start;
+        }
+
+        nextGeneration();
+        open.clear();
+        gScore[start] = 0;
+        parent[start] = start;
+        seen[start] = generation;
+        open.push(start, GridMoves.octile(sx, sy, gx, gy));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (current == goal) {
+                return backtrack(start, goal);
+            }
+            closed[current] = generation;
+            expanded++;
+            int cx = current % width;
+            int cy = current / width;
+            float g = gScore[current];
+            int around = grid.neighbourhood(cx, cy);
+            for (int k = 0; k < 8; k++) {
+                int dx = GridMoves.DX[k];
+                int dy = GridMoves.DY[k];
+                if (!GridMoves.canMove(around, k)) {
+                    continue;
+                }
+                int nx = cx + dx;
+                int ny = cy + dy;
+                int next = nx + ny * width;
+                if (closed[next] == generation) {
+                    continue;
+                }
+                float ng = g + GridMoves.cost(dx, dy);
+                if (seen[next] != generation || ng < gScore[next]) {
+                    seen[next] = generation;
+                    gScore[next] = ng;
+                    parent[next] = current;
+                    open.push(next, ng + GridMoves.octile(nx, ny, gx, gy));
+                }
+            }
+        }
+        return NO_PATH;
+    }
+
+    /** Walks the parent chain back to the cell right after the start */
+    private int backtrack(int start, int goal) {
+        int node = goal;
+        while (parent[node] != start) {
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /** Starts a new search generation, wiping the stamps only when the counter wraps */
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+}
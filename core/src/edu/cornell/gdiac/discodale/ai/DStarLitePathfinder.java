@@ -0,0 +1,354 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import com.badlogic.gdx.utils.IntArray;
+import edu.cornell.gdiac.discodale.models.SceneModel;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+import java.util.Arrays;
+
+/**
+ * An incremental D* Lite planner for a single fly.
+ *
+ * The search runs backwards from the goal (Dale) toward the fly and keeps its state between
+ * calls. When the fly moves we only shift the heap keys, and when Dale or some grid cells
+ * change we only re-examine the vertices whose edges changed. If neither the fly, Dale nor the
+ * grid changed since the last call, the previous answer is reused without any planning.
+ *
+ * Moving the goal is handled as a change to the edge costs of a virtual node joined to the
+ * goal cell, which is exactly the kind of change D* Lite knows how to repair.
+ */
+public class DStarLitePathfinder implements Pathfinder {
+    /** Stand-in for an infinite path cost */
+    private static final float INF = Float.POSITIVE_INFINITY;
+
+    /** The scene whose grid we search */
+    private final SceneModel scene;
+    private final int width;
+    private final int height;
+
+    /** Current cost-to-goal estimate of each cell */
+    private float[] g;
+    /** One-step lookahead cost-to-goal of each cell */
+    private float[] rhs;
+    /** Cells whose g and rhs disagree, keyed by the D* Lite key pair */
+    private IndexedMinHeap open;
+    /** The grid as it looked the last time we planned */
+    private OccupancyGrid known;
+    /** Cell rectangles (x0, y0, x1, y1) of the regions changed since we last planned */
+    private final IntArray changes = new IntArray();
+
+    /** Heuristic offset accumulated as the fly moves */
+    private float km;
+    /** The fly cell used for the current heap keys */
+    private int last;
+    /** Current fly and goal cells, or NO_PATH if no plan has been made */
+    private int start;
+    private int goal;
+    /** The grid version we last planned against */
+    private int gridVersion;
+    /** The answer from the last call */
+    private int nextStep;
+
+    /** Calls to findNextStep */
+    private int requests;
+    /** Calls answered from the previous plan because nothing relevant changed */
+    private int skipped;
+    /** Calls that repaired the previous plan */
+    private int repairs;
+    /** Calls that had to plan from scratch */
+    private int restarts;
+    /** Vertices expanded over the lifetime of this planner */
+    private long expanded;
+
+    /**
+     * Creates a planner sized for the grid of the given scene
+     *
+     * The search arrays are only allocated the first time the fly starts chasing.
+     *
+     * @param scene The scene to search
+     */
+    public DStarLitePathfinder(SceneModel scene) {
+        this.scene = scene;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        start = NO_PATH;
+        goal = NO_PATH;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    /** Returns how many requests were answered without any planning */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /** Returns how many requests were answered by repairing the previous plan */
+    public int getRepairs() {
+        return repairs;
+    }
+
+    /** Returns how many requests had to plan from scratch */
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public long getExpanded() {
+        return expanded;
+    }
+
+    @Override
+    public int findNextStep(int sx, int sy, int gx, int gy) {
+        requests++;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        if (sx < 0 || sx >= width || sy < 0 || sy >= height || GridMoves.blocked(grid, gx, gy)) {
+            return NO_PATH;
+        }
+        int newStart = sx + sy * width;
+        int newGoal = gx + gy * width;
+        boolean gridChanged = gridVersion != scene.getGridVersion();
+        if (goal != NO_PATH && newStart == start && newGoal == goal && !gridChanged) {
+            skipped++;
+            return nextStep;
+        }
+
+        if (g == null || goal == NO_PATH) {
+            initialize(grid, newStart, newGoal);
+            restarts++;
+        } else {
+            repairs++;
+            if (newStart != start) {
+                km += heuristic(last, newStart);
+                last = newStart;
+                start = newStart;
+            }
+            if (gridChanged) {
+                applyGridChanges(grid);
+            }
+            if (newGoal != goal) {
+                moveGoal(grid, newGoal);
+            }
+        }
+        gridVersion = scene.getGridVersion();
+
+        computeShortestPath(grid);
+        nextStep = extractStep(grid);
+        return nextStep;
+    }
+
+    /** Throws away all search state and plans from scratch */
+    private void initialize(OccupancyGrid grid, int newStart, int newGoal) {
+        int cells = width * height;
+        if (g == null) {
+            g = new float[cells];
+            rhs = new float[cells];
+            open = new IndexedMinHeap(cells);
+            known = new OccupancyGrid(width, height);
+        }
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        open.clear();
+        known.set(grid);
+        km = 0;
+        start = newStart;
+        last = newStart;
+        goal = newGoal;
+        rhs[goal] = 0;
+        pushKey(goal);
+    }
+
+    /**
+     * Finds the cells that changed since we last planned and repairs around them
+     *
+     * Only the regions the scene reports as changed are compared.
+     */
+    private void applyGridChanges(OccupancyGrid grid) {
+        changes.clear();
+        scene.getChangedRegions(gridVersion, changes);
+        for (int k = 0; k < changes.size; k += 4) {
+            int x0 = changes.get(k);
+            int x1 = changes.get(k + 2);
+            for (int y = changes.get(k + 1); y <= changes.get(k + 3); y++) {
+                for (int w = x0 >> 6; w <= x1 >> 6; w++) {
+                    // Compare 64 cells at a time and only visit the ones that differ
+                    long changed = (known.getWord(y, w) ^ grid.getWord(y, w)) & spanMask(w, x0, x1);
+                    while (changed != 0) {
+                        int x = (w << 6) + Long.numberOfTrailingZeros(changed);
+                        changed &= changed - 1;
+                        // A cell takes part in every edge of its 3x3 block through the corner rule
+                        for (int i = -1; i <= 1; i++) {
+                            for (int j = -1; j <= 1; j++) {
+                                int nx = x + i;
+                                int ny = y + j;
+                                if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+                                    updateRhs(grid, nx + ny * width);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        known.set(grid);
+    }
+
+    /** Returns the bits of word w that hold the cells x0..x1 */
+    private static long spanMask(int w, int x0, int x1) {
+        int lo = Math.max(x0 - (w << 6), 0);
+        int hi = Math.min(x1 - (w << 6), 63);
+        return (-1L >>> (63 - hi)) & (-1L << lo);
+    }
+
+    /** Moves the goal by rewiring the virtual edge into the goal cell */
+    private void moveGoal(OccupancyGrid grid, int newGoal) {
+        int oldGoal = goal;
+        goal = newGoal;
+        rhs[goal] = 0;
+        updateVertex(goal);
+        updateRhs(grid, oldGoal);
+    }
+
+    /** Recomputes the lookahead cost of a cell from its successors */
+    private void updateRhs(OccupancyGrid grid, int cell) {
+        if (cell != goal) {
+            rhs[cell] = bestSuccessor(grid, cell, null);
+        }
+        updateVertex(cell);
+    }
+
+    /**
+     * Returns the cheapest cost to the goal through a successor of cell
+     *
+     * @param choice if not null, receives the flat index of that successor
+     */
+    private float bestSuccessor(OccupancyGrid grid, int cell, int[] choice) {
+        int cx = cell % width;
+        int cy = cell / width;
+        float best = INF;
+        int around = grid.neighbourhood(cx, cy);
+        for (int k = 0; k < 8; k++) {
+            int dx = GridMoves.DX[k];
+            int dy = GridMoves.DY[k];
+            if (!GridMoves.canMove(around, k)) {
+                continue;
+            }
+            int next = (cx + dx) + (cy + dy) * width;
+            float cost = GridMoves.cost(dx, dy) + g[next];
+            if (cost < best) {
+                best = cost;
+                if (choice != null) {
+                    choice[0] = next;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void updateVertex(int cell) {
+        if (g[cell] != rhs[cell]) {
+            pushKey(cell);
+        } else {
+            open.remove(cell);
+        }
+    }
+
+    private void pushKey(int cell) {
+        float k2 = Math.min(g[cell], rhs[cell]);
+        open.push(cell, k2 + heuristic(start, cell) + km, k2);
+    }
+
+    private void computeShortestPath(OccupancyGrid grid) {
+        while (!open.isEmpty()) {
+            float k2 = Math.min(g[start], rhs[start]);
+            float k1 = k2 + km;
+            float top1 = open.peekPriority();
+            float top2 = open.peekSecondary();
+            boolean startBehind = IndexedMinHeap.keyLess(top1, top2, k1, k2);
+            if (!startBehind && rhs[start] <= g[start]) {
+                break;
+            }
+
+            int u = open.peek();
+            float new2 = Math.min(g[u], rhs[u]);
+            float new1 = new2 + heuristic(start, u) + km;
+            if (IndexedMinHeap.keyLess(top1, top2, new1, new2)) {
+                // Key is stale because the fly moved since it was queued
+                open.push(u, new1, new2);
+                continue;
+            }
+            open.poll();
+            expanded++;
+            int ux = u % width;
+            int uy = u / width;
+            int around = grid.neighbourhood(ux, uy);
+            if (g[u] > rhs[u]) {
+                // Overconsistent: settle and propagate the cheaper cost to predecessors
+                g[u] = rhs[u];
+                for (int k = 0; k < 8; k++) {
+                    int pred = predecessor(around, ux, uy, k);
+                    if (pred != NO_PATH && pred != goal) {
+                        float cost = GridMoves.cost(GridMoves.DX[k], GridMoves.DY[k]) + g[u];
+                        if (cost < rhs[pred]) {
+                            rhs[pred] = cost;
+                        }
+                        updateVertex(pred);
+                    }
+                }
+            } else {
+                // Underconsistent: invalidate and let predecessors look elsewhere
+                g[u] = INF;
+                updateRhs(grid, u);
+                for (int k = 0; k < 8; k++) {
+                    int pred = predecessor(around, ux, uy, k);
+                    if (pred != NO_PATH) {
+                        updateRhs(grid, pred);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the neighbour of (x, y) in direction k if it can move into (x, y)
+     *
+     * Moves are not quite symmetric: a fly wedged into a wall cell may still leave it.
+     *
+     * @param around The neighbourhood mask of (x, y)
+     *
+     * @return the flat index of the neighbour, or NO_PATH
+     */
+    private int predecessor(int around, int x, int y, int k) {
+        int px = x + GridMoves.DX[k];
+        int py = y + GridMoves.DY[k];
+        if (px < 0 || px >= width || py < 0 || py >= height || !GridMoves.canEnter(around, k)) {
+            return NO_PATH;
+        }
+        return px + py * width;
+    }
+
+    /** Scratch slot for bestSuccessor */
+    private final int[] choice = new int[1];
+
+    /** Picks the successor of the fly cell that leads downhill to the goal */
+    private int extractStep(OccupancyGrid grid) {
+        if (start == goal) {
+            return start;
+        }
+        if (rhs[start] == INF) {
+            return NO_PATH;
+        }
+        choice[0] = NO_PATH;
+        return bestSuccessor(grid, start, choice) == INF ? NO_PATH : choice[0];
+    }
+
+    private float heuristic(int a, int b) {
+        return GridMoves.octile(a % width, a / width, b % width, b / width);
+    }
+}
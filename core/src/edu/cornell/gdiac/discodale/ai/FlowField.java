@@ -0,0 +1,237 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import com.badlogic.gdx.utils.IntArray;
+import edu.cornell.gdiac.discodale.models.SceneModel;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+import java.util.Arrays;
+
+/**
+ * A shortest-path flow field toward a single goal cell.
+ *
+ * Every chasing fly heads for the same target (Dale), so instead of searching once per fly
+ * we run one Dijkstra search outward from the goal and record, for every reachable cell,
+ * which neighbour to step to next. Looking up a fly's next step is then O(1). The field is
+ * rebuilt when the goal moves to another cell.
+ *
+ * When only the grid changes, the field is repaired instead. Every cell whose route runs
+ * through a changed region is cleared, and the search is run again from the cells around
+ * them that kept their routes. Those routes avoid every change, so their costs still hold.
+ */
+public class FlowField implements Pathfinder {
+    /** The scene whose grid we search */
+    private final SceneModel scene;
+    private final int width;
+    private final int height;
+
+    /** Cost from each cell to the goal */
+    private final float[] distance;
+    /** Next cell on the way to the goal, or NO_PATH if the goal is unreachable */
+    private final int[] next;
+    /** Cells whose search has finished */
+    private final boolean[] settled;
+    /** Dijkstra frontier */
+    private final IndexedMinHeap open;
+    /** Cells cleared by a repair, in the order they were found */
+    private final IntArray cleared = new IntArray();
+    /** Cell rectangles (x0, y0, x1, y1) of the regions changed since the field was built */
+    private final IntArray changes = new IntArray();
+
+    /** The goal cell of the current field, or NO_PATH if there is no field yet */
+    private int goal;
+    /** The grid version the current field was built against */
+    private int gridVersion;
+    /** How many times the field has been rebuilt */
+    private int rebuilds;
+    /** How many times the field has been repaired after a grid change */
+    private int repairs;
+
+    /**
+     * Creates an empty flow field sized for the grid of the given scene
+     *
+     * @param scene The scene to search
+     */
+    public FlowField(SceneModel scene) {
+        this.scene = scene;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int cells = width * height;
+        distance = new float[cells];
+        next = new int[cells];
+        settled = new boolean[cells];
+        open = new IndexedMinHeap(cells);
+        goal = NO_PATH;
+        rebuilds = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    public int getRepairs() {
+        return repairs;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The field is rebuilt first if the goal changed since the last call, or repaired if
+     * only the grid did.
+     */
+    @Override
+    public int findNextStep(int sx, int sy, int gx, int gy) {
+        update(gx, gy);
+        if (sx < 0 || sx >= width || sy < 0 || sy >= height) {
+            return NO_PATH;
+        }
+        return next[sx + sy * width];
+    }
+
+    /**
+     * Makes sure the field points toward (gx, gy)
+     *
+     * @param gx The goal column
+     * @param gy The goal row
+     */
+    public void update(int gx, int gy) {
+        int target = gx < 0 || gx >= width || gy < 0 || gy >= height ? NO_PATH : gx + gy * width;
+        int version = scene.getGridVersion();
+        if (target == goal && gridVersion == version) {
+            return;
+        }
+        OccupancyGrid grid = scene.getNavigationGrid();
+        boolean repairable = target == goal && goal != NO_PATH && next[goal] == goal
+                && !grid.get(goal % width, goal / width);
+        changes.clear();
+        // Past half the grid, clearing and reseeding costs about as much as starting over
+        if (repairable && scene.getChangedRegions(gridVersion, changes) < width * height / 2) {
+            gridVersion = version;
+            repair(grid);
+        } else {
+            goal = target;
+            gridVersion = version;
+            rebuild();
+        }
+    }
+
+    /**
+     * Updates the field around the changed regions listed in {@link #changes}
+     *
+     * A move is only affected by a change if one of its cells is within one cell of it, so
+     * every cell whose route takes such a move is cleared. The cells bordering the cleared
+     * ones keep routes that avoid the changes; searching outward from them restores every
+     * cleared cell, and also finds any route made shorter by cells that opened up.
+     */
+    private void repair(OccupancyGrid grid) {
+        repairs++;
+        cleared.clear();
+        for (int k = 0; k < changes.size; k += 4) {
+            int x0 = Math.max(changes.get(k) - 1, 0);
+            int y0 = Math.max(changes.get(k + 1) - 1, 0);
+            int x1 = Math.min(changes.get(k + 2) + 1, width - 1);
+            int y1 = Math.min(changes.get(k + 3) + 1, height - 1);
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    // Listed even without a route, since it may have gained one
+                    int cell = x + y * width;
+                    if (cell != goal) {
+                        next[cell] = NO_PATH;
+                        cleared.add(cell);
+                    }
+                }
+            }
+        }
+        // Clear everything routed through a cleared cell, walking the route tree backwards
+        for (int i = 0; i < cleared.size; i++) {
+            int cell = cleared.get(i);
+            int cx = cell % width;
+            int cy = cell / width;
+            for (int k = 0; k < 8; k++) {
+                int nx = cx + GridMoves.DX[k];
+                int ny = cy + GridMoves.DY[k];
+                int neighbor = nx + ny * width;
+                if (nx >= 0 && nx < width && ny >= 0 && ny < height && next[neighbor] == cell) {
+                    next[neighbor] = NO_PATH;
+                    cleared.add(neighbor);
+                }
+            }
+        }
+
+        open.clear();
+        for (int i = 0; i < cleared.size; i++) {
+            int cell = cleared.get(i);
+            int cx = cell % width;
+            int cy = cell / width;
+            for (int k = 0; k < 8; k++) {
+                int nx = cx + GridMoves.DX[k];
+                int ny = cy + GridMoves.DY[k];
+                if (nx >= 0 && nx < width && ny >= 0 && ny < height && next[nx + ny * width] != NO_PATH) {
+                    open.push(nx + ny * width, distance[nx + ny * width]);
+                }
+            }
+        }
+        search(grid, false);
+    }
+
+    /** Runs Dijkstra outward from the goal over the whole reachable grid */
+    private void rebuild() {
+        rebuilds++;
+        Arrays.fill(next, NO_PATH);
+        Arrays.fill(settled, false);
+        OccupancyGrid grid = scene.getNavigationGrid();
+        if (goal == NO_PATH || grid.get(goal % width, goal / width)) {
+            return;
+        }
+
+        open.clear();
+        distance[goal] = 0;
+        next[goal] = goal;
+        open.push(goal, 0);
+        search(grid, true);
+    }
+
+    /**
+     * Runs Dijkstra from the queued cells, giving each cell it reaches a shorter route
+     *
+     * @param fresh Whether every cell not yet reached is unrouted, so that a cell's first
+     *              route is final once it leaves the queue
+     */
+    private void search(OccupancyGrid grid, boolean fresh) {
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (fresh) {
+                settled[current] = true;
+            }
+            int cx = current % width;
+            int cy = current / width;
+            float d = distance[current];
+            int around = grid.neighbourhood(cx, cy);
+            for (int k = 0; k < 8; k++) {
+                int dx = GridMoves.DX[k];
+                int dy = GridMoves.DY[k];
+                int nx = cx + dx;
+                int ny = cy + dy;
+                // Search backwards: the neighbour must be able to move into this cell
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height || !GridMoves.canEnter(around, k)) {
+                    continue;
+                }
+                int neighbor = nx + ny * width;
+                if (fresh && settled[neighbor]) {
+                    continue;
+                }
+                float nd = d + GridMoves.cost(dx, dy);
+                if (next[neighbor] == NO_PATH || nd < distance[neighbor]) {
+                    distance[neighbor] = nd;
+                    next[neighbor] = current;
+                    open.push(neighbor, nd);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+/**
+ * Movement rules for the fly navigation grid.
+ *
+ * Flies move between the 8 neighbouring cells. A diagonal move is only allowed when
+ * both of the orthogonal cells it passes are free, so flies never cut wall corners.
+ * Cells are addressed by the flat index x + y * width.
+ */
+public final class GridMoves {
+    /** Cost of a diagonal move */
+    public static final float DIAGONAL = (float) Math.sqrt(2);
+
+    /** The 8 neighbour offsets (orthogonal moves first) */
+    public static final int[] DX = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    public static final int[] DY = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+    /** Neighbourhood bits that must be free to move from the centre cell in direction k */
+    private static final int[] MOVE_MASK = new int[8];
+    /** Neighbourhood bits that must be free to move into the centre cell from direction k */
+    private static final int[] ENTER_MASK = new int[8];
+
+    static {
+        for (int k = 0; k < 8; k++) {
+            int corners = 0;
+            if (DX[k] != 0 && DY[k] != 0) {
+                corners = OccupancyGrid.bit(DX[k], 0) | OccupancyGrid.bit(0, DY[k]);
+            }
+            MOVE_MASK[k] = OccupancyGrid.bit(DX[k], DY[k]) | corners;
+            // Coming from the neighbour passes the same two corner cells
+            ENTER_MASK[k] = OccupancyGrid.bit(0, 0) | corners;
+        }
+    }
+
+    private GridMoves() {}
+
+    /** Returns true if (x, y) is outside the grid or holds an obstacle */
+    public static boolean blocked(OccupancyGrid grid, int x, int y) {
+        return grid.blocked(x, y);
+    }
+
+    /**
+     * Returns true if a fly may move out of a cell in direction k
+     *
+     * @param neighbourhood The 3x3 neighbourhood mask of the cell
+     * @param k             The direction, an index into DX/DY
+     */
+    public static boolean canMove(int neighbourhood, int k) {
+        return (neighbourhood & MOVE_MASK[k]) == 0;
+    }
+
+    /**
+     * Returns true if a fly in the neighbour in direction k may move into the cell
+     *
+     * The neighbour itself must be inside the grid; that is not checked here.
+     *
+     * @param neighbourhood The 3x3 neighbourhood mask of the cell
+     * @param k             The direction of the neighbour, an index into DX/DY
+     */
+    public static boolean canEnter(int neighbourhood, int k) {
+        return (neighbourhood & ENTER_MASK[k]) == 0;
+    }
+
+    /**
+     * Returns true if a fly may move from (x, y) by (dx, dy)
+     *
+     * @param grid The occupancy grid
+     * @param x    The starting column
+     * @param y    The starting row
+     * @param dx   The column step (-1, 0 or 1)
+     * @param dy   The row step (-1, 0 or 1)
+     *
+     * @return true if the move is legal
+     */
+    public static boolean canMove(OccupancyGrid grid, int x, int y, int dx, int dy) {
+        if (blocked(grid, x + dx, y + dy)) {
+            return false;
+        }
+        if (dx != 0 && dy != 0) {
+            return !blocked(grid, x + dx, y) && !blocked(grid, x, y + dy);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if a fly can travel in a straight line between two cell centres
+     *
+     * Every cell the segment touches must be free. Where the segment passes exactly through
+     * a cell corner, both cells beside the corner must be free, matching the diagonal rule.
+     * Like {@link #canMove}, the starting cell itself is not checked.
+     *
+     * @param grid The occupancy grid
+     * @param x0   The starting column
+     * @param y0   The starting row
+     * @param x1   The target column
+     * @param y1   The target row
+     *
+     * @return true if the straight segment is clear
+     */
+    public static boolean lineOfSight(OccupancyGrid grid, int x0, int y0, int x1, int y1) {
+        int dx = Math.abs(x1 - x0);
+        int dy = Math.abs(y1 - y0);
+        int stepX = x1 > x0 ? 1 : -1;
+        int stepY = y1 > y0 ? 1 : -1;
+        int error = dx - dy;
+        dx *= 2;
+        dy *= 2;
+        int x = x0;
+        int y = y0;
+        while (x != x1 || y != y1) {
+            if (error > 0) {
+                x += stepX;
+                error -= dy;
+            } else if (error < 0) {
+                y += stepY;
+                error += dx;
+            } else {
+                if (blocked(grid, x + stepX, y) || blocked(grid, x, y + stepY)) {
+                    return false;
+                }
+                x += stepX;
+                y += stepY;
+                error += dx - dy;
+            }
+            if (blocked(grid, x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Euclidean distance between two cell centres */
+    public static float euclidean(int x1, int y1, int x2, int y2) {
+        int dx = x1 - x2;
+        int dy = y1 - y2;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /** Returns the cost of a single move by (dx, dy) */
+    public static float cost(int dx, int dy) {
+        return dx != 0 && dy != 0 ? DIAGONAL : 1f;
+    }
+
+    /** Octile distance, the exact cost between two cells on an empty 8-connected grid */
+    public static float octile(int x1, int y1, int x2, int y2) {
+        int ax = Math.abs(x1 - x2);
+        int ay = Math.abs(y1 - y2);
+        return Math.max(ax, ay) + (DIAGONAL - 1) * Math.min(ax, ay);
+    }
+}
@@ -0,0 +1,490 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import edu.cornell.gdiac.discodale.models.SceneModel;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical pathfinding (HPA*) over the scene occupancy grid.
+ *
+ * The grid is cut into square clusters. Wherever two neighbouring clusters share an open
+ * border we place a pair of portal nodes, one on each side, and precompute the cost between
+ * every two portals of the same cluster. Together these form a small abstract graph.
+ *
+ * Because every fly chases the same goal, one Dijkstra search over the abstract graph gives
+ * the cost from every portal to Dale. A fly then only searches its own cluster to pick the
+ * best exit portal, so the cost per fly stays flat no matter how large the level is.
+ * Paths are near-optimal: they may only cross cluster borders through portals, except that
+ * a fly wedged into a blocked cell may step straight across the border to get out.
+ *
+ * When the grid changes, the portals are placed again, which only reads the borders. The
+ * costs inside a cluster are searched again only if the scene reports a change in its
+ * cells or its portals moved; every other cluster keeps its costs.
+ */
+public class HierarchicalPathfinder implements Pathfinder {
+    /** Side length of a cluster in cells */
+    public static final int CLUSTER_SIZE = 8;
+    /** Entrances longer than this get a portal at each end instead of one in the middle */
+    private static final int LONG_ENTRANCE = 6;
+    /** Stand-in for an infinite path cost */
+    private static final float INF = Float.POSITIVE_INFINITY;
+
+    /** The scene whose grid we search */
+    private final SceneModel scene;
+    private final int width;
+    private final int height;
+    /** Number of clusters along each axis */
+    private final int clustersX;
+    private final int clustersY;
+
+    // Abstract graph, updated whenever the grid changes
+    /** The grid version the abstract graph was built against, or -1 if there is none */
+    private int graphVersion;
+    /** Cell of each portal node */
+    private int[] nodeCell;
+    /** The portal on the other side of the border from each node */
+    private int[] nodePartner;
+    /** Position of each node in its cluster's node list */
+    private int[] nodeSlot;
+    /** Nodes of each cluster */
+    private int[][] clusterNodes;
+    /** intraCost[n][k] is the cost from node n to the k-th node of its cluster */
+    private float[][] intraCost;
+
+    // Abstract search toward the goal, redone when the goal or graph changes
+    /** The goal cell the abstract costs were computed for */
+    private int goal;
+    private int goalVersion;
+    /** Cost from each node to the goal */
+    private float[] nodeDistance;
+    private IndexedMinHeap nodeOpen;
+
+    // Search restricted to a single cluster
+    private final float[] localDistance;
+    private final int[] localParent;
+    private final int[] localStamp;
+    private int localGeneration;
+    private final IndexedMinHeap localOpen;
+    /** Bounds of the cluster being searched */
+    private int localX0;
+    private int localY0;
+    private int localX1;
+    private int localY1;
+
+    /** Number of abstract graph builds */
+    private int builds;
+    /** Number of clusters whose portal costs were searched, over all builds */
+    private int clusterSearches;
+
+    /**
+     * Creates a hierarchical pathfinder for the given scene
+     *
+     * The abstract graph is built by {@link #prepare()} once the grid is filled in.
+     *
+     * @param scene The scene to search
+     */
+    public HierarchicalPathfinder(SceneModel scene) {
+        this.scene = scene;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.clustersX = (width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clustersY = (height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        int local = CLUSTER_SIZE * CLUSTER_SIZE;
+        localDistance = new float[local];
+        localParent = new int[local];
+        localStamp = new int[local];
+        localOpen = new IndexedMinHeap(local);
+        graphVersion = -1;
+        goal = NO_PATH;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    public int getNodeCount() {
+        return nodeCell == null ? 0 : nodeCell.length;
+    }
+
+    public int getBuilds() {
+        return builds;
+    }
+
+    public int getClusterSearches() {
+        return clusterSearches;
+    }
+
+    /** Builds or updates the abstract graph for the current grid */
+    @Override
+    public void prepare() {
+        if (graphVersion != scene.getGridVersion()) {
+            buildGraph();
+        }
+    }
+
+    @Override
+    public int findNextStep(int sx, int sy, int gx, int gy) {
+        OccupancyGrid grid = scene.getNavigationGrid();
+        if (sx < 0 || sx >= width || sy < 0 || sy >= height || GridMoves.blocked(grid, gx, gy)) {
+            return NO_PATH;
+        }
+        int start = sx + sy * width;
+        int target = gx + gy * width;
+        if (start == target) {
+            return start;
+        }
+        prepare();
+        updateGoal(grid, target);
+
+        // Search the fly's own cluster and pick the cheapest way out (or straight to the goal)
+        int cluster = clusterOf(sx, sy);
+        setLocalBounds(cluster);
+        localSearch(grid, sx, sy, false);
+        float best = INF;
+        int bestCell = NO_PATH;
+        boolean direct = false;
+        if (inLocalBounds(gx, gy) && localReached(gx, gy)) {
+            best = localDistance[localIndex(gx, gy)];
+            bestCell = target;
+        }
+        for (int node : clusterNodes[cluster]) {
+            int cell = nodeCell[node];
+            int cx = cell % width;
+            int cy = cell / width;
+            if (!localReached(cx, cy)) {
+                continue;
+            }
+            int partner = nodePartner[node];
+            float cost = localDistance[localIndex(cx, cy)] + 1 + nodeDistance[partner];
+            if (cost < best) {
+                best = cost;
+                // Standing on the portal already, so the next step is across the border
+                direct = cell == start;
+                bestCell = direct ? nodeCell[partner] : cell;
+            }
+        }
+        int next = bestCell;
+        if (bestCell != NO_PATH && !direct) {
+            // Refine: walk the local search tree back to the cell right after the start
+            int node = localIndex(bestCell % width, bestCell / width);
+            int startLocal = localIndex(sx, sy);
+            while (localParent[node] != startLocal) {
+                node = localParent[node];
+            }
+            next = (localX0 + node % CLUSTER_SIZE) + (localY0 + node / CLUSTER_SIZE) * width;
+        }
+
+        // A fly wedged into a blocked cell on a cluster border may have no portal to walk to.
+        // An open cell always shares an open border run, and so a portal, with any open cell
+        // it can step to across the border; a blocked one does not.
+        if (grid.get(sx, sy)) {
+            int around = grid.neighbourhood(sx, sy);
+            for (int k = 0; k < 8; k++) {
+                int nx = sx + GridMoves.DX[k];
+                int ny = sy + GridMoves.DY[k];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height || clusterOf(nx, ny) == cluster
+                        || !GridMoves.canMove(around, k)) {
+                    continue;
+                }
+                float cost = GridMoves.cost(GridMoves.DX[k], GridMoves.DY[k]) + costToGoal(grid, nx, ny, target);
+                if (cost < best) {
+                    best = cost;
+                    next = nx + ny * width;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Returns the cost from a cell to the goal, leaving the cell's cluster through a portal
+     *
+     * This searches the cluster of the cell, replacing the previous local search.
+     */
+    private float costToGoal(OccupancyGrid grid, int x, int y, int target) {
+        int cluster = clusterOf(x, y);
+        setLocalBounds(cluster);
+        localSearch(grid, x, y, false);
+        float best = INF;
+        int gx = target % width;
+        int gy = target / width;
+        if (inLocalBounds(gx, gy) && localReached(gx, gy)) {
+            best = localDistance[localIndex(gx, gy)];
+        }
+        for (int node : clusterNodes[cluster]) {
+            int cell = nodeCell[node];
+            if (localReached(cell % width, cell / width)) {
+                best = Math.min(best, localDistance[localIndex(cell % width, cell / width)] + nodeDistance[node]);
+            }
+        }
+        return best;
+    }
+
+    /** Recomputes the cost from every portal to the goal if the goal or graph changed */
+    private void updateGoal(OccupancyGrid grid, int target) {
+        if (target == goal && goalVersion == graphVersion) {
+            return;
+        }
+        goal = target;
+        goalVersion = graphVersion;
+
+        int gx = target % width;
+        int gy = target / width;
+        int cluster = clusterOf(gx, gy);
+        setLocalBounds(cluster);
+        localSearch(grid, gx, gy, true);
+
+        Arrays.fill(nodeDistance, INF);
+        nodeOpen.clear();
+        for (int node : clusterNodes[cluster]) {
+            int cell = nodeCell[node];
+            if (localReached(cell % width, cell / width)) {
+                nodeDistance[node] = localDistance[localIndex(cell % width, cell / width)];
+                nodeOpen.push(node, nodeDistance[node]);
+            }
+        }
+        while (!nodeOpen.isEmpty()) {
+            int node = nodeOpen.poll();
+            float d = nodeDistance[node];
+            relax(nodeOpen, nodePartner[node], d + 1);
+            int[] siblings = clusterNodes[clusterOfCell(nodeCell[node])];
+            float[] costs = intraCost[node];
+            for (int k = 0; k < siblings.length; k++) {
+                relax(nodeOpen, siblings[k], d + costs[k]);
+            }
+        }
+    }
+
+    private void relax(IndexedMinHeap open, int node, float d) {
+        if (d < nodeDistance[node]) {
+            nodeDistance[node] = d;
+            open.push(node, d);
+        }
+    }
+
+    /**
+     * Places portals on every open cluster border and links the portals of each cluster
+     *
+     * Costs from the previous graph are kept for clusters that did not change.
+     */
+    private void buildGraph() {
+        builds++;
+        int oldVersion = graphVersion;
+        int[] oldCell = nodeCell;
+        int[][] oldClusterNodes = clusterNodes;
+        float[][] oldIntraCost = intraCost;
+        graphVersion = scene.getGridVersion();
+        OccupancyGrid grid = scene.getNavigationGrid();
+        IntArray cells = new IntArray();
+        IntArray partners = new IntArray();
+
+        // Vertical borders between horizontally adjacent clusters
+        for (int x = CLUSTER_SIZE; x < width; x += CLUSTER_SIZE) {
+            for (int y0 = 0; y0 < height; y0 += CLUSTER_SIZE) {
+                int y1 = Math.min(y0 + CLUSTER_SIZE, height);
+                int run = -1;
+                for (int y = y0; y <= y1; y++) {
+                    boolean open = y < y1 && !grid.get(x - 1, y) && !grid.get(x, y);
+                    if (open && run < 0) {
+                        run = y;
+                    } else if (!open && run >= 0) {
+                        addEntrance(cells, partners, x - 1, run, x, run, y - run, 0, 1);
+                        run = -1;
+                    }
+                }
+            }
+        }
+        // Horizontal borders between vertically adjacent clusters
+        for (int y = CLUSTER_SIZE; y < height; y += CLUSTER_SIZE) {
+            for (int x0 = 0; x0 < width; x0 += CLUSTER_SIZE) {
+                int x1 = Math.min(x0 + CLUSTER_SIZE, width);
+                int run = -1;
+                for (int x = x0; x <= x1; x++) {
+                    boolean open = x < x1 && !grid.get(x, y - 1) && !grid.get(x, y);
+                    if (open && run < 0) {
+                        run = x;
+                    } else if (!open && run >= 0) {
+                        addEntrance(cells, partners, run, y - 1, run, y, x - run, 1, 0);
+                        run = -1;
+                    }
+                }
+            }
+        }
+
+        int count = cells.size;
+        nodeCell = cells.toArray();
+        nodePartner = partners.toArray();
+        nodeSlot = new int[count];
+        nodeDistance = new float[count];
+        nodeOpen = new IndexedMinHeap(Math.max(count, 1));
+
+        // Group nodes by cluster
+        IntArray[] members = new IntArray[clustersX * clustersY];
+        for (int c = 0; c < members.length; c++) {
+            members[c] = new IntArray();
+        }
+        for (int node = 0; node < count; node++) {
+            IntArray list = members[clusterOfCell(nodeCell[node])];
+            nodeSlot[node] = list.size;
+            list.add(node);
+        }
+        clusterNodes = new int[members.length][];
+        for (int c = 0; c < members.length; c++) {
+            clusterNodes[c] = members[c].toArray();
+        }
+
+        // Cost between every two portals of a cluster, searching inside the cluster only
+        intraCost = new float[count][];
+        FloatArray row = new FloatArray();
+        for (int cluster = 0; cluster < clusterNodes.length; cluster++) {
+            int[] nodes = clusterNodes[cluster];
+            if (oldVersion >= 0 && sameCells(nodes, nodeCell, oldClusterNodes[cluster], oldCell)
+                    && !clusterChanged(cluster, oldVersion)) {
+                // Same cells and same portals in the same order, so the same costs
+                for (int k = 0; k < nodes.length; k++) {
+                    intraCost[nodes[k]] = oldIntraCost[oldClusterNodes[cluster][k]];
+                }
+                continue;
+            }
+            clusterSearches++;
+            setLocalBounds(cluster);
+            for (int node : nodes) {
+                int cell = nodeCell[node];
+                localSearch(grid, cell % width, cell / width, false);
+                row.clear();
+                for (int sibling : nodes) {
+                    int sc = nodeCell[sibling];
+                    int sx = sc % width;
+                    int sy = sc / width;
+                    row.add(localReached(sx, sy) ? localDistance[localIndex(sx, sy)] : INF);
+                }
+                intraCost[node] = row.toArray();
+            }
+        }
+        goal = NO_PATH;
+    }
+
+    /** Returns true if two node lists sit on the same cells, in the same order */
+    private static boolean sameCells(int[] nodes, int[] cells, int[] oldNodes, int[] oldCells) {
+        if (nodes.length != oldNodes.length) {
+            return false;
+        }
+        for (int k = 0; k < nodes.length; k++) {
+            if (cells[nodes[k]] != oldCells[oldNodes[k]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if the scene reports a change to the cells of a cluster after a grid version */
+    private boolean clusterChanged(int cluster, int version) {
+        int x0 = (cluster % clustersX) * CLUSTER_SIZE;
+        int y0 = (cluster / clustersX) * CLUSTER_SIZE;
+        return scene.changedSince(version, x0, y0, x0 + CLUSTER_SIZE - 1, y0 + CLUSTER_SIZE - 1);
+    }
+
+    /**
+     * Adds portals for a run of open cells along a border
+     *
+     * (ax, ay) and (bx, by) are the first pair of facing cells; (stepX, stepY) walks along the run.
+     */
+    private void addEntrance(IntArray cells, IntArray partners, int ax, int ay, int bx, int by,
+                             int length, int stepX, int stepY) {
+        if (length > LONG_ENTRANCE) {
+            addPortal(cells, partners, ax, ay, bx, by);
+            int last = length - 1;
+            addPortal(cells, partners, ax + last * stepX, ay + last * stepY, bx + last * stepX, by + last * stepY);
+        } else {
+            int mid = length / 2;
+            addPortal(cells, partners, ax + mid * stepX, ay + mid * stepY, bx + mid * stepX, by + mid * stepY);
+        }
+    }
+
+    private void addPortal(IntArray cells, IntArray partners, int ax, int ay, int bx, int by) {
+        int a = cells.size;
+        cells.add(ax + ay * width);
+        partners.add(a + 1);
+        cells.add(bx + by * width);
+        partners.add(a);
+    }
+
+    private int clusterOf(int x, int y) {
+        return (x / CLUSTER_SIZE) + (y / CLUSTER_SIZE) * clustersX;
+    }
+
+    private int clusterOfCell(int cell) {
+        return clusterOf(cell % width, cell / width);
+    }
+
+    private void setLocalBounds(int cluster) {
+        localX0 = (cluster % clustersX) * CLUSTER_SIZE;
+        localY0 = (cluster / clustersX) * CLUSTER_SIZE;
+        localX1 = Math.min(localX0 + CLUSTER_SIZE, width);
+        localY1 = Math.min(localY0 + CLUSTER_SIZE, height);
+    }
+
+    private boolean inLocalBounds(int x, int y) {
+        return x >= localX0 && x < localX1 && y >= localY0 && y < localY1;
+    }
+
+    private int localIndex(int x, int y) {
+        return (x - localX0) + (y - localY0) * CLUSTER_SIZE;
+    }
+
+    private boolean localReached(int x, int y) {
+        return localStamp[localIndex(x, y)] == localGeneration;
+    }
+
+    /**
+     * Dijkstra from (x, y) that never leaves the current cluster
+     *
+     * @param backward if true, costs are measured into (x, y) rather than out of it
+     */
+    private void localSearch(OccupancyGrid grid, int x, int y, boolean backward) {
+        localGeneration++;
+        if (localGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(localStamp, 0);
+            localGeneration = 1;
+        }
+        localOpen.clear();
+        int origin = localIndex(x, y);
+        localDistance[origin] = 0;
+        localParent[origin] = origin;
+        localStamp[origin] = localGeneration;
+        localOpen.push(origin, 0);
+        while (!localOpen.isEmpty()) {
+            int current = localOpen.poll();
+            int cx = localX0 + current % CLUSTER_SIZE;
+            int cy = localY0 + current / CLUSTER_SIZE;
+            float d = localDistance[current];
+            int around = grid.neighbourhood(cx, cy);
+            for (int k = 0; k < 8; k++) {
+                int dx = GridMoves.DX[k];
+                int dy = GridMoves.DY[k];
+                int nx = cx + dx;
+                int ny = cy + dy;
+                if (!inLocalBounds(nx, ny)) {
+                    continue;
+                }
+                boolean legal = backward ? GridMoves.canEnter(around, k) : GridMoves.canMove(around, k);
+                if (!legal) {
+                    continue;
+                }
+                int next = localIndex(nx, ny);
+                float nd = d + GridMoves.cost(dx, dy);
+                if (localStamp[next] != localGeneration || nd < localDistance[next]) {
+                    localStamp[next] = localGeneration;
+                    localDistance[next] = nd;
+                    localParent[next] = current;
+                    localOpen.push(next, nd);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap over the integer ids 0 .. capacity-1.
+ *
+ * Each id can be in the heap at most once. Because we track where every id lives in the
+ * heap, changing the priority of an id that is already queued is O(log n) instead of a
+ * linear scan. All storage is allocated up front, so using the heap never allocates.
+ *
+ * Priorities are pairs compared lexicographically; searches that only need one key can
+ * ignore the second one. Path costs are sums of 1s and square roots of 2, so primary keys
+ * that differ only by rounding error are treated as ties.
+ */
+public class IndexedMinHeap {
+    /** Primary keys closer than this are considered equal */
+    public static final float EPSILON = 1e-4f;
+
+    /** The heap itself, holding ids */
+    private final int[] heap;
+    /** Position of each id in the heap, or -1 if the id is not queued */
+    private final int[] position;
+    /** Priority of each id (only meaningful while queued) */
+    private final float[] priority;
+    /** Tie-breaking priority of each id */
+    private final float[] secondary;
+    /** Number of ids currently queued */
+    private int size;
+
+    /**
+     * Creates an empty heap for the ids 0 .. capacity-1
+     *
+     * @param capacity The number of distinct ids
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        priority = new float[capacity];
+        secondary = new float[capacity];
+        Arrays.fill(position, -1);
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return heap.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    public float getPriority(int id) {
+        return priority[id];
+    }
+
+    /** Returns the id with the smallest priority without removing it */
+    public int peek() {
+        return heap[0];
+    }
+
+    /** Returns the smallest priority in the heap */
+    public float peekPriority() {
+        return priority[heap[0]];
+    }
+
+    /** Returns the tie-breaking priority of the smallest element in the heap */
+    public float peekSecondary() {
+        return secondary[heap[0]];
+    }
+
+    /**
+     * Adds an id to the heap, or changes its priority if it is already queued
+     *
+     * @param id The id to queue
+     * @param p  The new priority
+     */
+    public void push(int id, float p) {
+        push(id, p, 0);
+    }
+
+    /**
+     * Adds an id to the heap, or changes its priority if it is already queued
+     *
+     * @param id The id to queue
+     * @param p  The new priority
+     * @param q  The new tie-breaking priority
+     */
+    public void push(int id, float p, float q) {
+        int pos = position[id];
+        if (pos < 0) {
+            pos = size++;
+            heap[pos] = id;
+            position[id] = pos;
+            priority[id] = p;
+            secondary[id] = q;
+            siftUp(pos);
+        } else {
+            boolean smaller = keyLess(p, q, priority[id], secondary[id]);
+            priority[id] = p;
+            secondary[id] = q;
+            if (smaller) {
+                siftUp(pos);
+            } else {
+                siftDown(pos);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the id with the smallest priority
+     *
+     * @return the id with the smallest priority
+     */
+    public int poll() {
+        int top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    /**
+     * Removes an id from the heap if it is queued
+     *
+     * @param id The id to remove
+     */
+    public void remove(int id) {
+        int pos = position[id];
+        if (pos >= 0) {
+            removeAt(pos);
+        }
+    }
+
+    /** Empties the heap. This is O(size), not O(capacity). */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int pos) {
+        int id = heap[pos];
+        position[id] = -1;
+        size--;
+        if (pos == size) {
+            return;
+        }
+        int last = heap[size];
+        heap[pos] = last;
+        position[last] = pos;
+        siftDown(pos);
+        siftUp(position[last]);
+    }
+
+    /**
+     * Returns true if the key (p1, q1) comes strictly before the key (p2, q2)
+     */
+    public static boolean keyLess(float p1, float q1, float p2, float q2) {
+        if (p1 < p2 - EPSILON) {
+            return true;
+        }
+        return p1 <= p2 + EPSILON && q1 < q2;
+    }
+
+    /** Returns true if id a should come before id b */
+    private boolean less(int a, int b) {
+        return keyLess(priority[a], secondary[a], priority[b], secondary[b]);
+    }
+
+    private void siftUp(int pos) {
+        int id = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int pid = heap[parent];
+            if (!less(id, pid)) {
+                break;
+            }
+            heap[pos] = pid;
+            position[pid] = pos;
+            pos = parent;
+        }
+        heap[pos] = id;
+        position[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int id = heap[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && less(heap[right], heap[child])) {
+                child = right;
+            }
+            int cid = heap[child];
+            if (!less(cid, id)) {
+                break;
+            }
+            heap[pos] = cid;
+            position[cid] = pos;
+            pos = child;
+        }
+        heap[pos] = id;
+        position[id] = pos;
+    }
+}
@@ -0,0 +1,272 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import edu.cornell.gdiac.discodale.models.SceneModel;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+import java.util.Arrays;
+
+/**
+ * Jump Point Search over the scene occupancy grid.
+ *
+ * On a uniform-cost grid most cells on an optimal path are interchangeable, so instead of
+ * queueing every neighbour we slide in a straight line until something interesting happens
+ * (the goal, or a wall edge that opens up a new direction) and only queue that cell. The
+ * pruning rules are the variant for grids where diagonal moves may not cut corners, so the
+ * resulting paths obey exactly the same rules as {@link AStarPathfinder}.
+ */
+public class JumpPointPathfinder implements Pathfinder {
+    /** The scene whose grid we search */
+    private final SceneModel scene;
+    private final int width;
+    private final int height;
+
+    /** Cost of the best known path from the start to each jump point */
+    private final float[] gScore;
+    /** Previous jump point on the best known path */
+    private final int[] parent;
+    /** Generation in which gScore/parent were last written */
+    private final int[] seen;
+    /** Generation in which the jump point was expanded */
+    private final int[] closed;
+    /** The current search generation */
+    private int generation;
+    /** Open set, keyed by f = g + h */
+    private final IndexedMinHeap open;
+
+    /** Scratch buffers for the pruned neighbour directions of a node */
+    private final int[] dirX = new int[8];
+    private final int[] dirY = new int[8];
+
+    /** The grid and goal of the current search */
+    private OccupancyGrid grid;
+    private int goalX;
+    private int goalY;
+
+    /** Number of jump points expanded by the last search */
+    private int expanded;
+
+    /**
+     * Creates a pathfinder sized for the grid of the given scene
+     *
+     * @param scene The scene to search
+     */
+    public JumpPointPathfinder(SceneModel scene) {
+        this.scene = scene;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int cells = width * height;
+        gScore = new float[cells];
+        parent = new int[cells];
+        seen = new int[cells];
+        closed = new int[cells];
+        open = new IndexedMinHeap(cells);
+        generation = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    public int getExpanded() {
+        return expanded;
+    }
+
+    @Override
+    public int findNextStep(int sx, int sy, int gx, int gy) {
+        expanded = 0;
+        grid = scene.getNavigationGrid();
+        if (sx < 0 || sx >= width || sy < 0 || sy >= height || GridMoves.blocked(grid, gx, gy)) {
+            return NO_PATH;
+        }
+        int start = sx + sy * width;
+        int goal = gx + gy * width;
+        if (start == goal) {
+            return start;
+        }
+        goalX = gx;
+        goalY = gy;
+
+        nextGeneration();
+        open.clear();
+        gScore[start] = 0;
+        parent[start] = start;
+        seen[start] = generation;
+        open.push(start, GridMoves.octile(sx, sy, gx, gy));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (current == goal) {
+                return firstStep(start, goal);
+            }
+            closed[current] = generation;
+            expanded++;
+            int cx = current % width;
+            int cy = current / width;
+            int count = prunedDirections(current, cx, cy, start);
+            for (int k = 0; k < count; k++) {
+                int jump = jump(cx + dirX[k], cy + dirY[k], dirX[k], dirY[k]);
+                if (jump == NO_PATH || closed[jump] == generation) {
+                    continue;
+                }
+                int jx = jump % width;
+                int jy = jump / width;
+                float ng = gScore[current] + GridMoves.octile(cx, cy, jx, jy);
+                if (seen[jump] != generation || ng < gScore[jump]) {
+                    seen[jump] = generation;
+                    gScore[jump] = ng;
+                    parent[jump] = current;
+                    open.push(jump, ng + GridMoves.octile(jx, jy, gx, gy));
+                }
+            }
+        }
+        return NO_PATH;
+    }
+
+    /**
+     * Collects the directions worth exploring from a node into dirX/dirY
+     *
+     * @return the number of directions
+     */
+    private int prunedDirections(int node, int x, int y, int start) {
+        int count = 0;
+        if (node == start) {
+            int around = grid.neighbourhood(x, y);
+            for (int k = 0; k < 8; k++) {
+                if (GridMoves.canMove(around, k)) {
+                    dirX[count] = GridMoves.DX[k];
+                    dirY[count] = GridMoves.DY[k];
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        int p = parent[node];
+        int dx = Integer.signum(x - p % width);
+        int dy = Integer.signum(y - p / width);
+        if (dx != 0 && dy != 0) {
+            boolean vertical = free(x, y + dy);
+            boolean horizontal = free(x + dx, y);
+            if (vertical) {
+                count = add(count, 0, dy);
+            }
+            if (horizontal) {
+                count = add(count, dx, 0);
+            }
+            if (vertical && horizontal) {
+                count = add(count, dx, dy);
+            }
+        } else if (dx != 0) {
+            boolean ahead = free(x + dx, y);
+            boolean up = free(x, y + 1);
+            boolean down = free(x, y - 1);
+            if (ahead) {
+                count = add(count, dx, 0);
+                if (up) {
+                    count = add(count, dx, 1);
+                }
+                if (down) {
+                    count = add(count, dx, -1);
+                }
+            }
+            if (up) {
+                count = add(count, 0, 1);
+            }
+            if (down) {
+                count = add(count, 0, -1);
+            }
+        } else {
+            boolean ahead = free(x, y + dy);
+            boolean right = free(x + 1, y);
+            boolean left = free(x - 1, y);
+            if (ahead) {
+                count = add(count, 0, dy);
+                if (right) {
+                    count = add(count, 1, dy);
+                }
+                if (left) {
+                    count = add(count, -1, dy);
+                }
+            }
+            if (right) {
+                count = add(count, 1, 0);
+            }
+            if (left) {
+                count = add(count, -1, 0);
+            }
+        }
+        return count;
+    }
+
+    private int add(int count, int dx, int dy) {
+        dirX[count] = dx;
+        dirY[count] = dy;
+        return count + 1;
+    }
+
+    /**
+     * Slides from (x, y) in direction (dx, dy) until reaching a jump point
+     *
+     * (x, y) is the first cell after the node we are jumping from.
+     *
+     * @return the flat index of the jump point, or NO_PATH if we ran into a wall
+     */
+    private int jump(int x, int y, int dx, int dy) {
+        while (true) {
+            if (!free(x, y)) {
+                return NO_PATH;
+            }
+            if (x == goalX && y == goalY) {
+                return x + y * width;
+            }
+            if (dx != 0 && dy != 0) {
+                // A diagonal cell is a jump point if either straight slide from it finds one
+                if (jump(x + dx, y, dx, 0) != NO_PATH || jump(x, y + dy, 0, dy) != NO_PATH) {
+                    return x + y * width;
+                }
+                // Diagonal moves may not cut corners
+                if (!free(x + dx, y) || !free(x, y + dy)) {
+                    return NO_PATH;
+                }
+            } else if (dx != 0) {
+                if ((free(x, y - 1) && !free(x - dx, y - 1)) || (free(x, y + 1) && !free(x - dx, y + 1))) {
+                    return x + y * width;
+                }
+            } else {
+                if ((free(x - 1, y) && !free(x - 1, y - dy)) || (free(x + 1, y) && !free(x + 1, y - dy))) {
+                    return x + y * width;
+                }
+            }
+            x += dx;
+            y += dy;
+        }
+    }
+
+    /** Returns the cell right after the start on the path to the goal */
+    private int firstStep(int start, int goal) {
+        int node = goal;
+        while (parent[node] != start) {
+            node = parent[node];
+        }
+        // Jump points are joined by straight or diagonal runs, so step once toward it
+        int sx = start % width;
+        int sy = start / width;
+        return (sx + Integer.signum(node % width - sx)) + (sy + Integer.signum(node / width - sy)) * width;
+    }
+
+    private boolean free(int x, int y) {
+        return !GridMoves.blocked(grid, x, y);
+    }
+
+    /** Starts a new search generation, wiping the stamps only when the counter wraps */
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package edu.cornell.gdiac.discodale.ai;
+
+/**
+ * A strategy for steering a fly across the scene grid.
+ *
+ * Cells are addressed by the flat index x + y * width. All strategies follow the movement
+ * rules in {@link GridMoves}.
+ */
+public interface Pathfinder {
+    /** Returned when there is no path to the goal */
+    int NO_PATH = -1;
+
+    /**
+     * Available pathfinding strategies, as named in the "pathfinding" fly constant
+     */
+    enum Mode {
+        /** Plain A* over every cell */
+        ASTAR(true),
+        /** A* that jumps over runs of empty cells */
+        JPS(true),
+        /** One shared Dijkstra field toward the goal */
+        FLOWFIELD(true),
+        /** Incremental D* Lite, keeping a plan per fly between ticks */
+        DSTARLITE(false),
+        /** Hierarchical search over clusters of cells, for large levels */
+        HPA(true),
+        /** Any-angle Theta*, steering along straight segments instead of cell to cell */
+        THETA(true);
+
+        /** Whether one pathfinder instance can serve every fly */
+        private final boolean shared;
+
+        Mode(boolean shared) {
+            this.shared = shared;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+    }
+
+    /** Returns the width of the grid, used to decode flat cell indices */
+    int getWidth();
+
+    /**
+     * Returns true if steps may be any cell in clear line of sight rather than a neighbour
+     *
+     * Flies keep following such a waypoint until they reach it instead of asking again
+     * every tick.
+     */
+    default boolean isAnyAngle() {
+        return false;
+    }
+
+    /**
+     * Called once the scene grid has been filled in, before any fly starts chasing, and
+     * after every frame's grid update. Must be cheap when the grid version is unchanged.
+     */
+    default void prepare() {
+    }
+
+    /**
+     * Finds the first cell on a shortest path from (sx, sy) to (gx, gy)
+     *
+     * @param sx The start column
+     * @param sy The start row
+     * @param gx The goal column
+     * @param gy The goal row
+     *
+     * @return the flat index of the next cell (or, for any-angle strategies, a cell in clear
+     *         line of sight), the start index if start and goal are the same cell, or
+     *         NO_PATH if the goal cannot be reached
+     */
+    int findNextStep(int sx, int sy, int gx, int gy);
+}
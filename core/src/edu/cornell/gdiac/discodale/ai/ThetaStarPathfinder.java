@@ -0,0 +1,158 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import edu.cornell.gdiac.discodale.models.SceneModel;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+import java.util.Arrays;
+
+/**
+ * Any-angle search (Theta*) over the scene occupancy grid.
+ *
+ * This is A* where a cell may take its parent's parent as its own parent whenever the two
+ * can see each other, so paths are chains of straight segments instead of cell-to-cell
+ * steps. The answer is the far end of the first segment, which a fly can steer toward in a
+ * straight line for many frames.
+ */
+public class ThetaStarPathfinder implements Pathfinder {
+    /** The scene whose grid we search */
+    private final SceneModel scene;
+    private final int width;
+    private final int height;
+
+    /** Cost of the best known path from the start to each cell */
+    private final float[] gScore;
+    /** Previous waypoint on the best known path to each cell */
+    private final int[] parent;
+    /** Generation in which gScore/parent were last written */
+    private final int[] seen;
+    /** Generation in which the cell was expanded */
+    private final int[] closed;
+    /** The current search generation */
+    private int generation;
+    /** Open set, keyed by f = g + h */
+    private final IndexedMinHeap open;
+
+    /** Number of cells expanded by the last search */
+    private int expanded;
+
+    /**
+     * Creates a pathfinder sized for the grid of the given scene
+     *
+     * @param scene The scene to search
+     */
+    public ThetaStarPathfinder(SceneModel scene) {
+        this.scene = scene;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int cells = width * height;
+        gScore = new float[cells];
+        parent = new int[cells];
+        seen = new int[cells];
+        closed = new int[cells];
+        open = new IndexedMinHeap(cells);
+        generation = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    public int getExpanded() {
+        return expanded;
+    }
+
+    @Override
+    public boolean isAnyAngle() {
+        return true;
+    }
+
+    /**
+     * Finds the first waypoint on an any-angle path from (sx, sy) to (gx, gy)
+     *
+     * Unlike the other strategies the answer need not be a neighbour of the start, but the
+     * straight segment to it is always clear.
+     */
+    @Override
+    public int findNextStep(int sx, int sy, int gx, int gy) {
+        expanded = 0;
+        OccupancyGrid grid = scene.getNavigationGrid();
+        if (sx < 0 || sx >= width || sy < 0 || sy >= height || GridMoves.blocked(grid, gx, gy)) {
+            return NO_PATH;
+        }
+        int start = sx + sy * width;
+        int goal = gx + gy * width;
+        if (start == goal) {
+            return start;
+        }
+
+        nextGeneration();
+        open.clear();
+        gScore[start] = 0;
+        parent[start] = start;
+        seen[start] = generation;
+        open.push(start, GridMoves.euclidean(sx, sy, gx, gy));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (current == goal) {
+                return backtrack(start, goal);
+            }
+            closed[current] = generation;
+            expanded++;
+            int cx = current % width;
+            int cy = current / width;
+            int p = parent[current];
+            int px = p % width;
+            int py = p / width;
+            int around = grid.neighbourhood(cx, cy);
+            for (int k = 0; k < 8; k++) {
+                int dx = GridMoves.DX[k];
+                int dy = GridMoves.DY[k];
+                if (!GridMoves.canMove(around, k)) {
+                    continue;
+                }
+                int nx = cx + dx;
+                int ny = cy + dy;
+                int next = nx + ny * width;
+                if (closed[next] == generation) {
+                    continue;
+                }
+                // Skip the current cell entirely if its parent can see the neighbour
+                int from = current;
+                float ng = gScore[current] + GridMoves.cost(dx, dy);
+                if (p != current && GridMoves.lineOfSight(grid, px, py, nx, ny)) {
+                    from = p;
+                    ng = gScore[p] + GridMoves.euclidean(px, py, nx, ny);
+                }
+                if (seen[next] != generation || ng < gScore[next]) {
+                    seen[next] = generation;
+                    gScore[next] = ng;
+                    parent[next] = from;
+                    open.push(next, ng + GridMoves.euclidean(nx, ny, gx, gy));
+                }
+            }
+        }
+        return NO_PATH;
+    }
+
+    /** Walks the parent chain back to the first waypoint after the start */
+    private int backtrack(int start, int goal) {
+        int node = goal;
+        while (parent[node] != start) {
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /** Starts a new search generation, wiping the stamps only when the counter wraps */
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package edu.cornell.gdiac.discodale.ai;
+
+import com.badlogic.gdx.utils.IntArray;
+import edu.cornell.gdiac.discodale.models.SceneModel;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+import java.util.Arrays;
+
+/**
+ * Line of sight over the static geometry of a scene.
+ *
+ * Sight lines are traced through the scene grid one cell at a time with the voxel traversal
+ * of Amanatides and Woo, so the cost of a query depends on its length in cells and not on how
+ * many fixtures lie along it. Scaffolds are looked up in the scene's see-through layer and do
+ * not stop a line. Moving bodies are not in the grid and must be checked separately.
+ *
+ * When many flies look at Dale, it is cheaper to compute the whole field of view from Dale
+ * once per frame with shadowcasting and let every fly look up its own cell. An open cell is
+ * in the field of view exactly when the sight line between the two cell centres is clear,
+ * including lines that pass through cell corners; with assertions on this is checked for
+ * every field of view.
+ *
+ * Both kinds of result are cached by grid cell, so flies and a Dale that stay in their cells
+ * cost nothing until the grid changes. Even then, a sight line is only traced again if the
+ * scene reports a change in the rectangle between its ends, and the field of view only if
+ * some cell changed whether it blocks sight.
+ */
+public class VisibilityEngine {
+    /** How flies decide whether they can see Dale */
+    public enum Mode {
+        /** One sight line per fly */
+        RAY,
+        /** One field of view from Dale, shared by all flies */
+        FOV
+    }
+
+    /** Quadrant transforms: cell = origin + depth * (ROW_X, ROW_Y) + col * (COL_X, COL_Y) */
+    private static final int[] ROW_X = {0, 1, 0, -1};
+    private static final int[] ROW_Y = {1, 0, -1, 0};
+    private static final int[] COL_X = {1, 0, 1, 0};
+    private static final int[] COL_Y = {0, 1, 0, 1};
+
+    /** Number of entries in the sight line cache; a power of two */
+    private static final int CACHE_SIZE = 1024;
+
+    /** The scene whose grid we trace */
+    private final SceneModel scene;
+    /** Cells visible from the origin of the last field of view */
+    private final OccupancyGrid visible;
+    /** Origin of the field of view being computed */
+    private int originX;
+    private int originY;
+    /** Grid version of the last field of view, or -1 if there is none */
+    private int visibleVersion;
+    /** Whether each cell blocked sight as of opaqueVersion */
+    private final OccupancyGrid opaque;
+    /** Grid version the opaque cells were last brought up to, or -1 if never */
+    private int opaqueVersion;
+    /** Cell rectangles (x0, y0, x1, y1) of the regions to compare with the opaque cells */
+    private final IntArray changes = new IntArray();
+
+    /** Cached sight lines, keyed by viewer cell and target cell */
+    private final long[] cacheKeys;
+    /** Grid version each cached entry was computed for */
+    private final int[] cacheVersions;
+    /** Cached sight line results */
+    private final boolean[] cacheValues;
+
+    /** Number of sight lines traced since the last reset */
+    private long queries;
+    /** Number of fields of view computed since the last reset */
+    private long fieldsOfView;
+    /** Number of cells visited since the last reset */
+    private long cellsVisited;
+    /** Number of cached results reused since the last reset */
+    private long cacheHits;
+    /** Number of results that had to be computed since the last reset */
+    private long cacheMisses;
+
+    /**
+     * Creates a visibility engine for the given scene
+     *
+     * @param scene The scene to trace
+     */
+    public VisibilityEngine(SceneModel scene) {
+        this.scene = scene;
+        OccupancyGrid grid = scene.getGrid();
+        this.visible = new OccupancyGrid(grid.getWidth(), grid.getHeight());
+        this.visibleVersion = -1;
+        this.opaque = new OccupancyGrid(grid.getWidth(), grid.getHeight());
+        this.opaqueVersion = -1;
+        this.cacheKeys = new long[CACHE_SIZE];
+        this.cacheVersions = new int[CACHE_SIZE];
+        this.cacheValues = new boolean[CACHE_SIZE];
+        // No entry is valid until written
+        Arrays.fill(cacheVersions, -1);
+    }
+
+    /**
+     * Returns true if no static, opaque cell lies between the cells of two points
+     *
+     * This is {@link #clearSight} cached on the two cells, so the answer for a pair of cells
+     * is whatever the first query between them found. A cached answer is kept until the
+     * scene reports a change in the rectangle spanned by the two cells, which holds every
+     * cell the line can pass through or graze.
+     *
+     * @param x0 The x-coordinate of the viewer, in world units
+     * @param y0 The y-coordinate of the viewer, in world units
+     * @param x1 The x-coordinate of the target, in world units
+     * @param y1 The y-coordinate of the target, in world units
+     */
+    public boolean canSee(float x0, float y0, float x1, float y1) {
+        int width = visible.getWidth();
+        int fx = (int) Math.floor(x0);
+        int fy = (int) Math.floor(y0);
+        int tx = (int) Math.floor(x1);
+        int ty = (int) Math.floor(y1);
+        long from = fx + (long) fy * width;
+        long to = tx + (long) ty * width;
+        long key = (from << 32) ^ (to & 0xFFFFFFFFL);
+        int version = scene.getGridVersion();
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 54) & (CACHE_SIZE - 1);
+        int cached = cacheVersions[slot];
+        if (cached >= 0 && cacheKeys[slot] == key && (cached == version
+                || !scene.changedSince(cached, Math.min(fx, tx), Math.min(fy, ty), Math.max(fx, tx), Math.max(fy, ty)))) {
+            // Nothing the line touches has changed, so the answer holds for this version too
+            cacheVersions[slot] = version;
+            cacheHits++;
+            return cacheValues[slot];
+        }
+        cacheMisses++;
+        boolean result = clearSight(x0, y0, x1, y1);
+        cacheKeys[slot] = key;
+        cacheVersions[slot] = version;
+        cacheValues[slot] = result;
+        return result;
+    }
+
+    /**
+     * Returns true if no static, opaque cell lies between two points
+     *
+     * The cell holding the first point is not checked; the cell holding the second one is.
+     * A line that passes exactly through the corners of cells may graze opaque cells on
+     * one of its sides, but not on both, even at different corners. This is the rule the
+     * field of view follows, and it does not depend on which end the line is traced from.
+     *
+     * @param x0 The x-coordinate of the viewer, in world units
+     * @param y0 The y-coordinate of the viewer, in world units
+     * @param x1 The x-coordinate of the target, in world units
+     * @param y1 The y-coordinate of the target, in world units
+     */
+    public boolean clearSight(float x0, float y0, float x1, float y1) {
+        queries++;
+        int cx = (int) Math.floor(x0);
+        int cy = (int) Math.floor(y0);
+        int ex = (int) Math.floor(x1);
+        int ey = (int) Math.floor(y1);
+        double dx = Math.abs((double) x1 - x0);
+        double dy = Math.abs((double) y1 - y0);
+        int stepX = x1 > x0 ? 1 : -1;
+        int stepY = y1 > y0 ? 1 : -1;
+        // Distance to the next column and row boundary along each axis
+        double distX = x1 > x0 ? cx + 1 - (double) x0 : x0 - (double) cx;
+        double distY = y1 > y0 ? cy + 1 - (double) y0 : y0 - (double) cy;
+
+        // Whether the line has grazed an opaque corner ahead in x, or ahead in y, of itself.
+        // These are the two sides of the line, whichever way it runs.
+        boolean grazedX = false;
+        boolean grazedY = false;
+
+        // Every step moves one column or one row closer, so this bounds the walk
+        int steps = Math.abs(ex - cx) + Math.abs(ey - cy);
+        while (steps > 0) {
+            // Parameter along the line at which we cross into the next column or row. Both
+            // are computed afresh by one division, so a line through a cell corner ties exactly.
+            double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY : distX / dx;
+            double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY : distY / dy;
+            if (tMaxX < tMaxY) {
+                cx += stepX;
+                distX += 1;
+                steps--;
+            } else if (tMaxY < tMaxX) {
+                cy += stepY;
+                distY += 1;
+                steps--;
+            } else {
+                cellsVisited += 2;
+                grazedX |= scene.blocksSight(cx + stepX, cy);
+                grazedY |= scene.blocksSight(cx, cy + stepY);
+                if (grazedX && grazedY) {
+                    return false;
+                }
+                cx += stepX;
+                cy += stepY;
+                distX += 1;
+                distY += 1;
+                steps -= 2;
+            }
+            cellsVisited++;
+            if (scene.blocksSight(cx, cy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the cells visible from a point
+     *
+     * The result replaces that of the previous call and is read with {@link #isVisible}.
+     * Opaque cells on the edge of the view are visible themselves; cells outside the grid
+     * are treated as opaque.
+     *
+     * @param x The x-coordinate of the viewer, in world units
+     * @param y The y-coordinate of the viewer, in world units
+     */
+    public void computeFieldOfView(float x, float y) {
+        int ox = (int) Math.floor(x);
+        int oy = (int) Math.floor(y);
+        int version = scene.getGridVersion();
+        boolean opacityChanged = updateOpaque();
+        if (ox == originX && oy == originY && visibleVersion >= 0 && !opacityChanged) {
+            visibleVersion = version;
+            cacheHits++;
+            return;
+        }
+        cacheMisses++;
+        fieldsOfView++;
+        visible.clear();
+        originX = ox;
+        originY = oy;
+        visibleVersion = version;
+        if (!visible.inBounds(originX, originY)) {
+            return;
+        }
+        visible.set(originX, originY, true);
+        for (int q = 0; q < 4; q++) {
+            scan(q, 1, -1, 1);
+        }
+        assert fieldOfViewMatchesSightLines() : "Field of view does not match the sight lines";
+    }
+
+    /**
+     * Brings the opaque cells up to the current grid version
+     *
+     * Only the regions the scene reports as changed are compared.
+     *
+     * @return true if any cell changed whether it blocks sight
+     */
+    private boolean updateOpaque() {
+        int version = scene.getGridVersion();
+        if (version == opaqueVersion) {
+            return false;
+        }
+        changes.clear();
+        scene.getChangedRegions(opaqueVersion, changes);
+        opaqueVersion = version;
+        boolean changed = false;
+        for (int k = 0; k < changes.size; k += 4) {
+            for (int cy = changes.get(k + 1); cy <= changes.get(k + 3); cy++) {
+                for (int cx = changes.get(k); cx <= changes.get(k + 2); cx++) {
+                    boolean blocks = scene.blocksSight(cx, cy);
+                    if (blocks != opaque.get(cx, cy)) {
+                        opaque.set(cx, cy, blocks);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns true if every open cell is visible exactly when the sight line to it is clear
+     *
+     * This traces a line to every cell of the grid, so it is only meant for assertions. The
+     * statistics are left as they were.
+     */
+    private boolean fieldOfViewMatchesSightLines() {
+        long savedQueries = queries;
+        long savedCells = cellsVisited;
+        boolean matches = true;
+        for (int x = 0; x < visible.getWidth() && matches; x++) {
+            for (int y = 0; y < visible.getHeight() && matches; y++) {
+                if (!scene.blocksSight(x, y)) {
+                    matches = visible.get(x, y) == clearSight(originX + 0.5f, originY + 0.5f, x + 0.5f, y + 0.5f);
+                }
+            }
+        }
+        queries = savedQueries;
+        cellsVisited = savedCells;
+        return matches;
+    }
+
+    /**
+     * Returns true if the cell holding a point was visible in the last field of view
+     *
+     * @param x The x-coordinate of the target, in world units
+     * @param y The y-coordinate of the target, in world units
+     */
+    public boolean isVisible(float x, float y) {
+        int cx = (int) Math.floor(x);
+        int cy = (int) Math.floor(y);
+        return visible.inBounds(cx, cy) && visible.get(cx, cy);
+    }
+
+    /**
+     * Scans one row of a quadrant between two slopes, recursing into the rows behind it
+     *
+     * Within a quadrant a cell is addressed by its depth (distance from the origin along
+     * the quadrant axis) and its column, and a sight line by its slope column / depth.
+     * Opaque cells shadow every slope that passes through or touches their square. A slope
+     * touched from one side stays open until a square on the other side touches it too, which
+     * is how {@link #clearSight} treats lines through cell corners.
+     *
+     * @param q     The quadrant
+     * @param depth The distance of the row from the origin
+     * @param start The lowest slope still in view
+     * @param end   The highest slope still in view
+     */
+    private void scan(int q, int depth, double start, double end) {
+        double near = depth - 0.5;
+        double far = depth + 0.5;
+        // Columns whose square meets the view inside this row
+        int minCol = (int) Math.ceil(Math.min(start * near, start * far) - 0.5);
+        int maxCol = (int) Math.floor(Math.max(end * near, end * far) + 0.5);
+        for (int col = minCol; col <= maxCol; col++) {
+            int cx = originX + depth * ROW_X[q] + col * COL_X[q];
+            int cy = originY + depth * ROW_Y[q] + col * COL_Y[q];
+            boolean inside = visible.inBounds(cx, cy);
+            cellsVisited++;
+            if (inside && !scene.blocksSight(cx, cy)) {
+                double slope = (double) col / depth;
+                if (slope >= start && slope <= end && !grazedByNext(q, depth, col, cx, cy)) {
+                    visible.set(cx, cy, true);
+                }
+                continue;
+            }
+
+            // The slopes shadowed by this square
+            double low = Math.min((col - 0.5) / far, (col - 0.5) / near);
+            double high = Math.max((col + 0.5) / far, (col + 0.5) / near);
+            if (inside && high >= start && low <= end) {
+                visible.set(cx, cy, true);
+            }
+            if (low > start) {
+                scan(q, depth + 1, start, Math.min(low, end));
+            }
+            start = Math.max(start, high);
+            // Shadows that only touch still close the view, so lines cannot slip between
+            // two opaque cells that meet at a corner
+            if (start >= end) {
+                return;
+            }
+        }
+        scan(q, depth + 1, start, end);
+    }
+
+    /**
+     * Returns true if the line to a cell on the first diagonal of a quadrant grazes the cell
+     * after it in the same row
+     *
+     * That cell shadows the diagonal from its near corner, but it is scanned too late to
+     * close the view before the cell in front of it. Every other graze comes from a row
+     * nearer the origin, or from a cell earlier in the row, and is already in the slopes.
+     *
+     * @param q     The quadrant
+     * @param depth The row of the cell
+     * @param col   The column of the cell
+     * @param cx    The x-coordinate of the cell
+     * @param cy    The y-coordinate of the cell
+     */
+    private boolean grazedByNext(int q, int depth, int col, int cx, int cy) {
+        return col == -depth && scene.blocksSight(cx + COL_X[q], cy + COL_Y[q]);
+    }
+
+    public long getQueries() {
+        return queries;
+    }
+
+    public long getFieldsOfView() {
+        return fieldsOfView;
+    }
+
+    /** Returns the number of grid cells visited by all sight lines and fields of view so far */
+    public long getCellsVisited() {
+        return cellsVisited;
+    }
+
+    /** Returns how many sight lines and fields of view were answered from the cache */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /** Returns how many sight lines and fields of view had to be computed */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /** Clears the statistics */
+    public void resetStats() {
+        queries = 0;
+        fieldsOfView = 0;
+        cellsVisited = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+    }
+}
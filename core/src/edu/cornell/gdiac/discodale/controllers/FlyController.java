@@ -1,11 +1,11 @@
 package edu.cornell.gdiac.discodale.controllers;
 
-import com.badlogic.gdx.physics.box2d.Fixture;
+import edu.cornell.gdiac.discodale.ai.GridMoves;
+import edu.cornell.gdiac.discodale.ai.Pathfinder;
 import edu.cornell.gdiac.discodale.models.DaleModel;
 import edu.cornell.gdiac.discodale.models.FlyModel;
 import edu.cornell.gdiac.discodale.models.SceneModel;
-
-import java.util.*;
+import edu.cornell.gdiac.util.OccupancyGrid;
 
 public class FlyController {
 
@@ -37,22 +37,13 @@ public class FlyController {
 
     private boolean seeDaleInRealWorld;
 
-    public class Node {
-        int x;
-        int y;
-        float g;
-        float h;
-        Node parent;
-
-        public Node(int x, int y, float g, float h) {
-            this.x = x;
-            this.y = y;
-            this.g = g;
-            this.h = h;
-            this.parent = null;
-        }
-
-    }
+    /** Pathfinding strategy used while chasing Dale */
+    private Pathfinder pathfinder;
+    /** The any-angle waypoint the fly is currently steering toward, or NO_PATH */
+    private int waypoint;
+    /** Dale's cell when the waypoint was chosen, and the grid version it was last checked against */
+    private int waypointGoal;
+    private int waypointVersion;
 
     /**
      * Creates an FlyController for the fly with the given id.
@@ -60,11 +51,14 @@ public class FlyController {
      * @param fly   The fly of the controller
      * @param dale  The target Dale
      * @param scene The scene
+     * @param pathfinder The pathfinding strategy used while chasing Dale
      */
-    public FlyController(FlyModel fly, DaleModel dale, SceneModel scene) {
+    public FlyController(FlyModel fly, DaleModel dale, SceneModel scene, Pathfinder pathfinder) {
         this.dale = dale;
         this.fly = fly;
         this.scene = scene;
+        this.pathfinder = pathfinder;
+        waypoint = Pathfinder.NO_PATH;
         state = FSMState.IDLE;
         dx = 0;
         dy = 0;
@@ -123,15 +117,36 @@ public class FlyController {
 
     /** Determine if fly should chase Dale */
     public boolean shouldChaseDale(){
-        boolean seeInArea = true;
-        boolean seeDaleInWorld = true;
-        if(scene.isAreaSightMode()){
-            seeInArea = daleInAreaSight();
+        // Cheapest tests first
+        if (!dale.getVisible() || dale.getMatch()) {
+            return false;
         }
-        if(scene.isRealSightMode()){
-            seeDaleInWorld = getSeeDaleInRealWorld();
+        if (scene.isRealSightMode() && !getSeeDaleInRealWorld()) {
+            return false;
+        }
+        return !scene.isAreaSightMode() || daleInAreaSight();
+    }
+
+    /** Determine if a chasing fly should give up on Dale */
+    private boolean shouldStopChasing() {
+        return dale.getMatch() || !dale.getVisible();
+    }
+
+    /**
+     * Returns true if the next decision would move the fly to another state
+     *
+     * This uses the same tests as the state machine and reads only cached sight, so it is
+     * cheap enough to ask of every fly every frame.
+     */
+    public boolean pendingTransition() {
+        switch (state) {
+            case IDLE:
+                return shouldChaseDale();
+            case CHASE:
+                return shouldStopChasing();
+            default:
+                return false;
         }
-        return seeInArea && seeDaleInWorld && dale.getVisible() && !dale.getMatch();
     }
 
     /**
@@ -149,7 +164,7 @@ public class FlyController {
                 break;
 
             case CHASE:
-                if (dale.getMatch() || !dale.getVisible()) {
+                if (shouldStopChasing()) {
                     fly.setAngry(false);
                     state = FSMState.IDLE;
                 }
@@ -169,15 +184,6 @@ public class FlyController {
         return (int) Math.floor(coordinate);
     }
 
-    // Compute euclidean distance between two nodes
-    private float distance(int x1, int y1, int x2, int y2) {
-        return (float) (Math.sqrt(Math.pow((double) x1 - x2, 2) + Math.pow((double) y1 - y2, 2)));
-    }
-
-    private boolean inBounds(int x, int y, boolean [][] grid){
-        return x >= 0 && x < grid.length && y >= 0 && y < grid[0].length;
-    }
-
     private void setIdleDirection(){
         switch (fly.getIdleType()){
             case STATIONARY:
@@ -189,10 +195,10 @@ public class FlyController {
                     dx = 1f;
                     dy = 0f;
                 }
-                boolean[][] grid = scene.getGrid();
+                OccupancyGrid grid = scene.getGrid();
                 int nextx = cToG(fly.getX() + dx);
                 int nexty = cToG(fly.getY() + dy);
-                if(!inBounds(nextx, nexty, grid) || grid[nextx][nexty]){
+                if(grid.blocked(nextx, nexty)){
                     dx = -dx;
                     dy = -dy;
                 }
@@ -201,114 +207,71 @@ public class FlyController {
     }
 
     private void findDirection() {
-        boolean[][] grid = scene.getGrid();
-        boolean[][] visited = new boolean[grid.length][grid[0].length];
         // Goal's x and y grids
         int gx = cToG(dale.getX());
         int gy = cToG(dale.getY());
         // Fly's x and y grids
         int fx = cToG(fly.getX());
         int fy = cToG(fly.getY());
-        Node current = new Node(fx, fy, 0, distance(gx, gy, fx, fy));
-        LinkedList<Node> explored = new LinkedList<Node>();
-        LinkedList<Node> frontier = new LinkedList<Node>();
-        frontier.add(current);
-        visited[current.x][current.y] = true;
-        Comparator<Node> comparator = new Comparator<Node>() {
-            public int compare(Node n1, Node n2) {
-                float cost1 = n1.g + n1.h;
-                float cost2 = n2.g + n2.h;
-                return (int) Math.signum(cost1 - cost2);
-            }
-        };
-        Node goal = null;
-        while (!frontier.isEmpty()) {
-            Node n = Collections.min(frontier, comparator);
-            if (n.x == gx && n.y == gy) {
-                goal = n;
-                break;
-            }
-            frontier.remove(n);
-            explored.add(n);
-            for (int i =-1;i<= 1;i++) {
-                for (int j=-1;j<=1;j++) {
-                    int nextx = n.x + i;
-                    int nexty = n.y + j;
-                    if (!inBounds(nextx, nexty, grid)) {
-                        continue;
-                    }
-                    if(grid[nextx][nexty]){
-                        continue;
-                    }
-                    if (!visited[nextx][nexty]) {
-                        if (Math.abs(i * j) == 1) {
-                            if (grid[n.x + i][n.y] || grid[n.x][n.y + j]) {
-                                continue;
-                            }
-                        }
-                        visited[nextx][nexty] = true;
-                        float dist1 = distance(n.x, n.y, nextx, nexty);
-                        float dist2 = distance(nextx, nexty, gx, gy);
-                        Node next = new Node(nextx, nexty, n.g + dist1, dist2);
-                        next.parent = n;
-                        frontier.add(next);
-                    }else{
-                        Node next = null;
-                        for(Node node : frontier){
-                            if(node.x == nextx && node.y == nexty){
-                                next = node;
-                                break;
-                            }
-                        }
-                        if(next == null){
-                            continue;
-                        }
-                        float dist1 = distance(n.x, n.y, nextx, nexty);
-                        if(dist1 < next.g){
-                            next.g = dist1;
-                            next.parent = n;
-                        }
-
-                    }
-                }
-            }
-
+        int width = pathfinder.getWidth();
+        int goal = gx + gy * width;
+        int here = fx + fy * width;
+        int next;
+        if (pathfinder.isAnyAngle() && waypointValid(fx, fy, goal)) {
+            // Keep following the current segment until it is reached, blocked or Dale moves
+            next = waypoint;
+        } else {
+            // Grid-step strategies are asked every tick, so they see every grid change
+            next = pathfinder.findNextStep(fx, fy, gx, gy);
+            waypoint = next == here || !pathfinder.isAnyAngle() ? Pathfinder.NO_PATH : next;
+            waypointGoal = goal;
+            waypointVersion = scene.getGridVersion();
         }
 
         // When there is no path to dale, just stay
         // TODO: May be different if idle behavior is more complex
-        if(goal == null){
+        if (next == Pathfinder.NO_PATH) {
             dx = 0;
             dy = 0;
             return;
         }
 
-        // In corner cases (won or losed, but haven't reset), dale and fly are in one grid, so goal has no parent
-        if(goal.parent == null){
+        // In corner cases (won or losed, but haven't reset), dale and fly are in one grid
+        if (next == here) {
             return;
         }
 
-        // backtrack
-        while (goal.parent != current) {
-            goal = goal.parent;
-        }
-
         // set dx, dy
-        Node next = goal;
-        dx = next.x - fly.getX()+0.5f;
-        dy = next.y - fly.getY()+0.5f;
+        int nextX = next % width;
+        int nextY = next / width;
+        dx = nextX - fly.getX()+0.5f;
+        dy = nextY - fly.getY()+0.5f;
         dx = dx / (float) Math.sqrt(dx * dx + dy * dy);
         dy = dy / (float) Math.sqrt(dx * dx + dy * dy);
+    }
 
-        // debugging message
-//        System.out.println("hi");
-//        System.out.println(gx);
-//        System.out.println(gy);
-//        System.out.println(fly.getX());
-//        System.out.println(fly.getY());
-//        System.out.println(next.x);
-//        System.out.println(next.y);
-//        System.out.println(dx);
-//        System.out.println(dy);
+    /**
+     * Returns true if the cached waypoint can still be followed from (fx, fy)
+     *
+     * Grid changes only drop the waypoint if they touch the rectangle between the fly and
+     * the waypoint; the route past the waypoint is planned again once it is reached.
+     */
+    private boolean waypointValid(int fx, int fy, int goal) {
+        if (waypoint == Pathfinder.NO_PATH || goal != waypointGoal) {
+            return false;
+        }
+        int width = pathfinder.getWidth();
+        int wx = waypoint % width;
+        int wy = waypoint / width;
+        if (wx == fx && wy == fy) {
+            return false;
+        }
+        if (waypointVersion != scene.getGridVersion()) {
+            if (scene.changedSince(waypointVersion, Math.min(fx, wx), Math.min(fy, wy), Math.max(fx, wx), Math.max(fy, wy))) {
+                return false;
+            }
+            waypointVersion = scene.getGridVersion();
+        }
+        return GridMoves.lineOfSight(scene.getNavigationGrid(), fx, fy, wx, wy);
     }
 }
@@ -0,0 +1,185 @@
+package edu.cornell.gdiac.discodale.controllers;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.TimeUtils;
+import edu.cornell.gdiac.discodale.models.DaleModel;
+import edu.cornell.gdiac.discodale.models.FlyModel;
+
+import java.util.List;
+
+/**
+ * Spreads fly decision making across frames under a fixed time budget.
+ *
+ * Every fly has an update interval picked from its distance to Dale: flies near Dale decide
+ * every frame, distant or off-screen flies only every few frames. Each frame, the flies whose
+ * interval has run out are refreshed most-overdue first until the budget is spent; the rest
+ * keep their previous decision and are counted as deferred.
+ *
+ * A fly about to start or stop chasing is always treated as due, so reactions stay immediate.
+ */
+public class FlyScheduler {
+    /** Controllers being scheduled */
+    private final FlyController[] controllers;
+    /** The target Dale, used to measure distance */
+    private final DaleModel dale;
+
+    /** Time allowed for fly decisions each frame, in nanoseconds */
+    private final long budget;
+    /** Flies closer than this (in world units) use the near interval */
+    private final float nearRadius;
+    /** Flies farther than this use the far interval */
+    private final float farRadius;
+    /** Update intervals, in frames */
+    private final int nearInterval;
+    private final int midInterval;
+    private final int farInterval;
+    /** Interval for flies outside the camera view */
+    private final int offscreenInterval;
+
+    /** Frame each fly last made a decision */
+    private final long[] lastUpdate;
+    /** Scratch list of due flies and their urgency */
+    private final int[] due;
+    private final float[] urgency;
+    /** The current frame */
+    private long frame;
+
+    /** Decisions made since the last reset */
+    private long updates;
+    /** Due decisions pushed to a later frame because the budget ran out */
+    private long deferred;
+    /** Sum of the age (in frames) of each decision when it was refreshed */
+    private long staleness;
+    /** Oldest decision refreshed since the last reset, in frames */
+    private long maxStaleness;
+    /** Time spent on decisions in the last frame, in nanoseconds */
+    private long lastFrameTime;
+
+    /**
+     * Creates a scheduler for the given flies
+     *
+     * @param controllers The fly controllers to schedule
+     * @param dale        The target Dale
+     * @param data        The "schedule" fly constants, may be null for the defaults
+     */
+    public FlyScheduler(List<FlyController> controllers, DaleModel dale, JsonValue data) {
+        this.controllers = controllers.toArray(new FlyController[0]);
+        this.dale = dale;
+        float budgetMs = data == null ? 1.0f : data.getFloat("budget", 1.0f);
+        budget = (long) (budgetMs * 1000000);
+        nearRadius = data == null ? 8 : data.getFloat("near_radius", 8);
+        farRadius = data == null ? 20 : data.getFloat("far_radius", 20);
+        nearInterval = data == null ? 1 : data.getInt("near_interval", 1);
+        midInterval = data == null ? 3 : data.getInt("mid_interval", 3);
+        farInterval = data == null ? 10 : data.getInt("far_interval", 10);
+        offscreenInterval = data == null ? 6 : data.getInt("offscreen_interval", 6);
+
+        int count = this.controllers.length;
+        lastUpdate = new long[count];
+        due = new int[count];
+        urgency = new float[count];
+        frame = 0;
+    }
+
+    /**
+     * Refreshes the decisions of the flies that are due this frame
+     *
+     * @param view The area of the world visible on screen, in world units
+     */
+    public void update(Rectangle view) {
+        frame++;
+        int count = 0;
+        for (int i = 0; i < controllers.length; i++) {
+            int interval = intervalFor(controllers[i], view);
+            long age = frame - lastUpdate[i];
+            if (age >= interval) {
+                // Insertion sort by urgency; fly counts are small
+                float u = (float) age / interval;
+                int j = count++;
+                while (j > 0 && urgency[j - 1] < u) {
+                    due[j] = due[j - 1];
+                    urgency[j] = urgency[j - 1];
+                    j--;
+                }
+                due[j] = i;
+                urgency[j] = u;
+            }
+        }
+
+        long start = TimeUtils.nanoTime();
+        long elapsed = 0;
+        for (int k = 0; k < count; k++) {
+            // Always make some progress, even if a single decision blows the budget
+            if (k > 0 && elapsed >= budget) {
+                deferred += count - k;
+                break;
+            }
+            int i = due[k];
+            long age = frame - lastUpdate[i];
+            controllers[i].changeDirection();
+            lastUpdate[i] = frame;
+            updates++;
+            staleness += age;
+            maxStaleness = Math.max(maxStaleness, age);
+            elapsed = TimeUtils.nanoTime() - start;
+        }
+        lastFrameTime = elapsed;
+    }
+
+    /** Returns how many frames may pass between decisions of this fly */
+    private int intervalFor(FlyController controller, Rectangle view) {
+        if (controller.pendingTransition()) {
+            return 1;
+        }
+        FlyModel fly = controller.getFly();
+        float dx = fly.getX() - dale.getX();
+        float dy = fly.getY() - dale.getY();
+        float dist2 = dx * dx + dy * dy;
+        int interval;
+        if (dist2 <= nearRadius * nearRadius) {
+            interval = nearInterval;
+        } else if (dist2 <= farRadius * farRadius) {
+            interval = midInterval;
+        } else {
+            interval = farInterval;
+        }
+        if (view != null && !view.contains(fly.getX(), fly.getY())) {
+            interval = Math.max(interval, offscreenInterval);
+        }
+        return Math.max(interval, 1);
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    /** Returns how many due decisions were pushed back because the budget ran out */
+    public long getDeferred() {
+        return deferred;
+    }
+
+    /** Returns the average age of a decision when it was refreshed, in frames */
+    public float getAverageStaleness() {
+        return updates == 0 ? 0 : (float) staleness / updates;
+    }
+
+    /** Returns the oldest decision refreshed so far, in frames */
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    /** Returns the time spent on decisions in the last frame, in nanoseconds */
+    public long getLastFrameTime() {
+        return lastFrameTime;
+    }
+
+    /** Clears the statistics, leaving the schedule untouched */
+    public void resetStats() {
+        updates = 0;
+        deferred = 0;
+        staleness = 0;
+        maxStaleness = 0;
+        lastFrameTime = 0;
+    }
+}
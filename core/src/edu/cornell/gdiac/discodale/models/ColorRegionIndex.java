@@ -0,0 +1,229 @@
+package edu.cornell.gdiac.discodale.models;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.List;
+
+/**
+ * Finds the color region under a point without testing every region.
+ *
+ * The level is divided into square buckets, and each bucket lists the regions whose bounding
+ * box overlaps it, in drawing order. A lookup tests only the regions in one bucket. Moving
+ * regions mark the index stale, and it is rebuilt on the next lookup.
+ *
+ * Levels whose regions never move can also use a raster: a coarse grid that records, for each
+ * cell no region outline passes through, which region covers it. Most lookups are then a
+ * single array read. Region colors may still change, since the raster only stores regions.
+ */
+public class ColorRegionIndex {
+    /** Raster value for a cell no region covers */
+    private static final int NO_REGION = -1;
+    /** Raster value for a cell that a region outline passes through */
+    private static final int MIXED = -2;
+
+    /** The regions, in drawing order */
+    private final ColorRegionModel[] regions;
+    /** Size of the level in pixels */
+    private final float width;
+    private final float height;
+
+    /** Side of a bucket in pixels */
+    private final float bucketSize;
+    /** Number of buckets across and up the level */
+    private final int columns;
+    private final int rows;
+    /** Indices of the regions overlapping each bucket, in increasing order */
+    private final IntArray[] buckets;
+    /** Whether the regions have moved since the buckets were filled */
+    private boolean stale;
+
+    /** Side of a raster cell in pixels */
+    private float rasterSize;
+    /** Number of raster cells across the level */
+    private int rasterColumns;
+    /** The region covering each raster cell, or NO_REGION or MIXED; null if there is no raster */
+    private int[] raster;
+    /** Number of raster cells a region outline passes through */
+    private int edgeCells;
+
+    /** A cache value for region bounds */
+    private final Rectangle boundsCache = new Rectangle();
+
+    /**
+     * Creates an index over the given regions
+     *
+     * @param regions    The regions, in drawing order
+     * @param width      The width of the level in pixels
+     * @param height     The height of the level in pixels
+     * @param bucketSize The side of a bucket in pixels
+     */
+    public ColorRegionIndex(List<ColorRegionModel> regions, float width, float height, float bucketSize) {
+        this.regions = regions.toArray(new ColorRegionModel[0]);
+        this.width = width;
+        this.height = height;
+        this.bucketSize = bucketSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / bucketSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / bucketSize));
+        this.buckets = new IntArray[columns * rows];
+        for (int ii = 0; ii < buckets.length; ii++) {
+            buckets[ii] = new IntArray();
+        }
+        this.stale = true;
+    }
+
+    /**
+     * Notes that the regions have moved
+     *
+     * The buckets are refilled on the next lookup. Any raster is dropped, as it can only
+     * describe regions that stay where they are.
+     */
+    public void markMoved() {
+        stale = true;
+        raster = null;
+    }
+
+    /**
+     * Precomputes which region covers each cell of a coarse grid
+     *
+     * Only use this when the regions will not move.
+     *
+     * @param cellSize The side of a raster cell in pixels
+     */
+    public void buildRaster(float cellSize) {
+        rasterSize = cellSize;
+        rasterColumns = Math.max(1, (int) Math.ceil(width / cellSize));
+        int rasterRows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int[] cells = new int[rasterColumns * rasterRows];
+        Rectangle cell = new Rectangle();
+        int mixed = 0;
+        for (int j = 0; j < rasterRows; j++) {
+            for (int i = 0; i < rasterColumns; i++) {
+                cell.set(i * cellSize, j * cellSize, cellSize, cellSize);
+                int value = NO_REGION;
+                for (ColorRegionModel region : regions) {
+                    if (region.getBounds(boundsCache).overlaps(cell) && region.crosses(cell)) {
+                        value = MIXED;
+                        break;
+                    }
+                }
+                if (value == MIXED) {
+                    mixed++;
+                } else {
+                    // No outline passes through, so the whole cell agrees with its centre
+                    value = lookup(cell.x + cellSize / 2, cell.y + cellSize / 2);
+                }
+                cells[i + j * rasterColumns] = value;
+            }
+        }
+        raster = cells;
+        edgeCells = mixed;
+    }
+
+    /** Returns the number of raster cells a region outline passes through, or 0 if there is no raster */
+    public int getEdgeCellCount() {
+        return raster == null ? 0 : edgeCells;
+    }
+
+    /**
+     * Returns the first region, in drawing order, that contains a point
+     *
+     * @param x The x-coordinate in pixels
+     * @param y The y-coordinate in pixels
+     *
+     * @return the region under the point, or null if there is none
+     */
+    public ColorRegionModel regionAt(float x, float y) {
+        if (raster != null && x >= 0 && y >= 0 && x < width && y < height) {
+            int value = raster[(int) (x / rasterSize) + (int) (y / rasterSize) * rasterColumns];
+            if (value != MIXED) {
+                return value == NO_REGION ? null : regions[value];
+            }
+        }
+        int index = lookup(x, y);
+        return index == NO_REGION ? null : regions[index];
+    }
+
+    /**
+     * Returns the index of the first region that contains a point, using the buckets
+     *
+     * @param x The x-coordinate in pixels
+     * @param y The y-coordinate in pixels
+     *
+     * @return the region index, or NO_REGION
+     */
+    private int lookup(float x, float y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            // Outside the level the buckets say nothing, so test every region
+            for (int ii = 0; ii < regions.length; ii++) {
+                if (regions[ii].contains(x, y)) {
+                    return ii;
+                }
+            }
+            return NO_REGION;
+        }
+        if (stale) {
+            fillBuckets();
+        }
+        IntArray bucket = buckets[(int) (x / bucketSize) + (int) (y / bucketSize) * columns];
+        for (int ii = 0; ii < bucket.size; ii++) {
+            int index = bucket.get(ii);
+            if (regions[index].contains(x, y)) {
+                return index;
+            }
+        }
+        return NO_REGION;
+    }
+
+    /**
+     * Lists every region in the buckets its bounding box overlaps
+     *
+     * Wrapping regions are listed at every period that reaches into the level.
+     */
+    private void fillBuckets() {
+        for (IntArray bucket : buckets) {
+            bucket.clear();
+        }
+        for (int index = 0; index < regions.length; index++) {
+            ColorRegionModel region = regions[index];
+            Rectangle box = region.getBounds(boundsCache);
+            float wrapX = region.getWrapWidth();
+            float wrapY = region.getWrapHeight();
+            int kx0 = wrapX > 0 ? (int) Math.ceil(-(box.x + box.width) / wrapX) : 0;
+            int kx1 = wrapX > 0 ? (int) Math.floor((width - box.x) / wrapX) : 0;
+            int ky0 = wrapY > 0 ? (int) Math.ceil(-(box.y + box.height) / wrapY) : 0;
+            int ky1 = wrapY > 0 ? (int) Math.floor((height - box.y) / wrapY) : 0;
+            for (int kx = kx0; kx <= kx1; kx++) {
+                for (int ky = ky0; ky <= ky1; ky++) {
+                    insert(index, box.x + kx * wrapX, box.y + ky * wrapY, box.width, box.height);
+                }
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * Adds a region to every bucket a box overlaps
+     *
+     * @param index The region index
+     * @param x     The left of the box in pixels
+     * @param y     The bottom of the box in pixels
+     * @param w     The width of the box in pixels
+     * @param h     The height of the box in pixels
+     */
+    private void insert(int index, float x, float y, float w, float h) {
+        int i0 = Math.max(0, (int) Math.floor(x / bucketSize));
+        int i1 = Math.min(columns - 1, (int) Math.floor((x + w) / bucketSize));
+        int j0 = Math.max(0, (int) Math.floor(y / bucketSize));
+        int j1 = Math.min(rows - 1, (int) Math.floor((y + h) / bucketSize));
+        for (int j = j0; j <= j1; j++) {
+            for (int i = i0; i <= i1; i++) {
+                IntArray bucket = buckets[i + j * columns];
+                // Periods of one region may meet in a bucket; list it once
+                if (bucket.size == 0 || bucket.peek() != index) {
+                    bucket.add(index);
+                }
+            }
+        }
+    }
+}
@@ -5,9 +5,12 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.PolygonRegion;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.EarClippingTriangulator;
-import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import edu.cornell.gdiac.discodale.GameCanvas;
 import edu.cornell.gdiac.discodale.SaveManager;
 
@@ -20,18 +23,55 @@ public class ColorRegionModel implements Cloneable{
 
 	private DaleColor[] seq;
 	private int seqIndex;
-	/** Shape of the color region */
+	/** Shape of the color region, before it is moved */
 	public Polygon shape;
 	/** Polygon Region used for drawing */
 	private PolygonRegion polygonRegion;
 
-	/** Polygon Region used for drawing */
-	private PolygonRegion polygonRegionTexture;
+	/** Polygon Regions for the accessibility patterns, by color; made when first drawn */
+	private PolygonRegion[] patternRegions = new PolygonRegion[DaleColor.values().length];
 
 	/** Array of color textures */
 	private static TextureRegion[] colors = new TextureRegion[5];
-	/** Texture */
-	private Texture texture;
+	/** The half transparent white pixel every region is drawn with, tinted by its color */
+	private static Texture pixelTexture;
+	private static TextureRegion pixelRegion;
+	/** Number of regions holding the pixel; it is released when this drops to zero */
+	private static int pixelUsers;
+	/** Whether this region still holds the pixel */
+	private boolean holdsPixel;
+
+	/** How far the region has been moved */
+	private float offsetX;
+	private float offsetY;
+	/** How far the region has been turned, in degrees, and the point it turns about */
+	private float angle;
+	private float pivotX;
+	private float pivotY;
+	/** The motion of the region, from its shape to where it is drawn */
+	private final Affine2 transform = new Affine2();
+	/** The inverse of the motion, to test points against the shape */
+	private final Affine2 inverse = new Affine2();
+	/** A cache value for transforming points */
+	private final Vector2 pointCache = new Vector2();
+	/** A cache value for the transform of one wrapped copy */
+	private final Affine2 drawTransform = new Affine2();
+
+	/** Bounding box of the shape, before it is moved */
+	private float minX;
+	private float maxX;
+	private float minY;
+	private float maxY;
+	/** The period the region repeats with across and up the level, or 0 if it does not */
+	private float wrapWidth;
+	private float wrapHeight;
+
+	/** Color at the start of the level */
+	private DaleColor startColor;
+	/** Motion at the start of the level */
+	private float startOffsetX;
+	private float startOffsetY;
+	private float startAngle;
 
 	public Object clone() throws CloneNotSupportedException
 	{
@@ -43,15 +83,112 @@ public class ColorRegionModel implements Cloneable{
 		this.shape = new Polygon(vertices);
 		this.seq = seq;
 		this.seqIndex = 0;
-		Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
-		pixmap.setColor(new Color(1, 1, 1, 0.5f));
-		pixmap.fill();
-		texture = new Texture(pixmap);
-		this.polygonRegion = new PolygonRegion(new TextureRegion(texture), vertices,
+		this.polygonRegion = new PolygonRegion(acquirePixel(), vertices,
 				TRIANGULATOR.computeTriangles(vertices).toArray());
-		polygonRegionTexture = polygonRegion;
+		holdsPixel = true;
+		Rectangle box = shape.getBoundingRectangle();
+		minX = box.x;
+		maxX = box.x + box.width;
+		minY = box.y;
+		maxY = box.y + box.height;
+		saveStart();
 	}
 
+	/**
+	 * Returns the shared white pixel, making it if no region holds it yet
+	 */
+	private static TextureRegion acquirePixel() {
+		if (pixelUsers == 0) {
+			Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+			pixmap.setColor(new Color(1, 1, 1, 0.5f));
+			pixmap.fill();
+			pixelTexture = new Texture(pixmap);
+			pixmap.dispose();
+			pixelRegion = new TextureRegion(pixelTexture);
+		}
+		pixelUsers++;
+		return pixelRegion;
+	}
+
+	/**
+	 * Returns the number of regions holding the shared white pixel
+	 *
+	 * Every live region holds it once, so after a level is loaded this should equal the
+	 * number of regions in the level. Anything more means old regions were not disposed.
+	 */
+	public static int getPixelUsers() {
+		return pixelUsers;
+	}
+
+	/**
+	 * Returns the number of textures the color regions have made and not yet released
+	 */
+	public static int getTextureCount() {
+		return pixelTexture == null ? 0 : 1;
+	}
+
+	/**
+	 * Lets go of the shared white pixel
+	 *
+	 * The pixel texture is released with the last region. The region must not be drawn
+	 * after this. Calling this twice has no further effect.
+	 */
+	public void dispose() {
+		if (!holdsPixel) {
+			return;
+		}
+		holdsPixel = false;
+		pixelUsers--;
+		if (pixelUsers == 0) {
+			pixelTexture.dispose();
+			pixelTexture = null;
+			pixelRegion = null;
+		}
+	}
+
+	/**
+	 * Makes the region repeat forever across and up the level
+	 *
+	 * A scrolling region is stored once. Its offset is kept within one period, and it
+	 * is drawn and tested at every period that could reach the point in question.
+	 * Wrapping regions can move but not turn.
+	 *
+	 * @param width  The horizontal period in pixels, or 0 to not repeat across
+	 * @param height The vertical period in pixels, or 0 to not repeat up
+	 */
+	public void setWrap(float width, float height) {
+		wrapWidth = width;
+		wrapHeight = height;
+		move(0, 0);
+	}
+
+	/**
+	 * Records the current color and position as the state to restore on a restart
+	 */
+	public void saveStart() {
+		startColor = color;
+		startOffsetX = offsetX;
+		startOffsetY = offsetY;
+		startAngle = angle;
+	}
+
+	/**
+	 * Returns the color region to its state at the last call to {@link #saveStart}
+	 */
+	public void restoreStart() {
+		color = startColor;
+		seqIndex = 0;
+		offsetX = startOffsetX;
+		offsetY = startOffsetY;
+		angle = startAngle;
+		updateTransform();
+	}
+
+	/**
+	 * Returns the vertices of the region before it was moved
+	 *
+	 * The array is shared with the drawing region and must not be changed.
+	 */
 	public float[] getVertices(){
 		return polygonRegion.getVertices();
 	}
@@ -69,62 +206,134 @@ public class ColorRegionModel implements Cloneable{
 //
 //	}
 
+	/**
+	 * Moves the region by the given amount
+	 *
+	 * @param dx The distance to move right, in pixels
+	 * @param dy The distance to move up, in pixels
+	 */
 	public void move(float dx, float dy){
-		float[] vertices = getVertices().clone();
-		for(int i =0;i<vertices.length;i++){
-			if(i%2==0){
-				vertices[i]+=dx;
-			}else{
-				vertices[i]+=dy;
-			}
+		offsetX += dx;
+		offsetY += dy;
+		if (wrapWidth > 0) {
+			offsetX -= wrapWidth * (float) Math.floor(offsetX / wrapWidth);
+		}
+		if (wrapHeight > 0) {
+			offsetY -= wrapHeight * (float) Math.floor(offsetY / wrapHeight);
 		}
-		this.shape.setVertices(vertices);
-		this.polygonRegion = new PolygonRegion(new TextureRegion(texture), vertices, TRIANGULATOR.computeTriangles(vertices).toArray());
+		updateTransform();
 	}
 
+	/**
+	 * Turns the region counter-clockwise about a point
+	 *
+	 * A region turns about one point at a time; giving a new point moves the pivot
+	 * of all the turning so far.
+	 *
+	 * @param x2 The x-coordinate of the pivot, in pixels
+	 * @param y2 The y-coordinate of the pivot, in pixels
+	 * @param d  The angle to turn, in degrees
+	 */
 	public void rotateAround(float x2, float y2, float d){
-		float[] vertices = getVertices().clone();
-		for(int i =0;i<vertices.length;i=i+2){
-			float x1 = vertices[i];
-			float y1 = vertices[i+1];
-			float x = (x1-x2)* MathUtils.cosDeg(d) - (y1-y2)*MathUtils.sinDeg(d)+x2;
-			float y = (x1-x2)* MathUtils.sinDeg(d) + (y1-y2)*MathUtils.cosDeg(d)+y2;
-			vertices[i]=x;
-			vertices[i+1]=y;
+		assert wrapWidth == 0 && wrapHeight == 0 : "Wrapping regions cannot turn";
+		pivotX = x2;
+		pivotY = y2;
+		angle = (angle + d) % 360;
+		updateTransform();
+	}
+
+	/**
+	 * Rebuilds the transform and its inverse from the offset and angle
+	 *
+	 * The motion is kept as an offset and an angle rather than by composing the
+	 * transform frame after frame, so rounding errors cannot build up.
+	 */
+	private void updateTransform() {
+		transform.setToTranslation(pivotX + offsetX, pivotY + offsetY);
+		transform.rotate(angle);
+		transform.translate(-pivotX, -pivotY);
+		inverse.set(transform).inv();
+	}
+
+	/** Returns the horizontal period of a wrapping region, or 0 if it does not wrap */
+	public float getWrapWidth() {
+		return wrapWidth;
+	}
+
+	/** Returns the vertical period of a wrapping region, or 0 if it does not wrap */
+	public float getWrapHeight() {
+		return wrapHeight;
+	}
+
+	/**
+	 * Returns the bounding box of the region where it is now
+	 *
+	 * A wrapping region repeats this box at every period.
+	 *
+	 * @param out The rectangle to store the result in
+	 *
+	 * @return the rectangle, for chaining
+	 */
+	public Rectangle getBounds(Rectangle out) {
+		float[] vertices = getVertices();
+		float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+		float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < vertices.length; i += 2) {
+			float x = transform.m00 * vertices[i] + transform.m01 * vertices[i+1] + transform.m02;
+			float y = transform.m10 * vertices[i] + transform.m11 * vertices[i+1] + transform.m12;
+			x0 = Math.min(x0, x);
+			x1 = Math.max(x1, x);
+			y0 = Math.min(y0, y);
+			y1 = Math.max(y1, y);
 		}
-		this.shape.setVertices(vertices);
-		this.polygonRegion = new PolygonRegion(new TextureRegion(texture), vertices, TRIANGULATOR.computeTriangles(vertices).toArray());
+		return out.set(x0, y0, x1 - x0, y1 - y0);
 	}
 
 	/**
-	 * Test if all the vertices are out of bounds
+	 * Returns true if the outline of the region, where it is now, passes through a rectangle
 	 *
-	 * @param bound The bound to test
-	 * @param r Either x or y coordinates to test. 0 means x coordinate, 1 means y coordinate
+	 * Wrapping copies are not considered.
 	 *
-	 * @return 0 means not or only partially out of bounds, 1 means to the left or bottom, -1 means to the right or top
+	 * @param rect The rectangle to test
 	 */
-	public int testBound(float bound, int r){
-		boolean toLeftOrBottom = true;
-		boolean toRightOrTop = true;
-		float[] vertices = getVertices().clone();
-		for(int i=0;i<vertices.length;i++){
-			if(i%2==r){
-				if(vertices[i]>0){
-					toLeftOrBottom = false;
-				}
-				if(vertices[i]<=bound){
-					toRightOrTop = false;
-				}
+	public boolean crosses(Rectangle rect) {
+		float[] vertices = getVertices();
+		int n = vertices.length;
+		for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+			float xi = transform.m00 * vertices[i] + transform.m01 * vertices[i+1] + transform.m02;
+			float yi = transform.m10 * vertices[i] + transform.m11 * vertices[i+1] + transform.m12;
+			float xj = transform.m00 * vertices[j] + transform.m01 * vertices[j+1] + transform.m02;
+			float yj = transform.m10 * vertices[j] + transform.m11 * vertices[j+1] + transform.m12;
+			if (Intersector.intersectSegmentRectangle(xi, yi, xj, yj, rect)) {
+				return true;
 			}
 		}
-		if(toLeftOrBottom){
-			return 1;
-		}
-		if(toRightOrTop){
-			return -1;
+		return false;
+	}
+
+	/**
+	 * Returns true if the region, where it is now, contains a point
+	 *
+	 * @param x The x-coordinate of the point, in pixels
+	 * @param y The y-coordinate of the point, in pixels
+	 */
+	public boolean contains(float x, float y) {
+		inverse.applyTo(pointCache.set(x, y));
+		float px = pointCache.x;
+		float py = pointCache.y;
+		// Only the periods whose bounding box holds the point can contain it
+		int kx0 = wrapWidth > 0 ? (int) Math.ceil((px - maxX) / wrapWidth) : 0;
+		int kx1 = wrapWidth > 0 ? (int) Math.floor((px - minX) / wrapWidth) : 0;
+		int ky0 = wrapHeight > 0 ? (int) Math.ceil((py - maxY) / wrapHeight) : 0;
+		int ky1 = wrapHeight > 0 ? (int) Math.floor((py - minY) / wrapHeight) : 0;
+		for (int kx = kx0; kx <= kx1; kx++) {
+			for (int ky = ky0; ky <= ky1; ky++) {
+				if (shape.contains(px - kx * wrapWidth, py - ky * wrapHeight)) {
+					return true;
+				}
+			}
 		}
-		return 0;
+		return false;
 	}
 
 	public DaleColor getColor() {
@@ -153,12 +362,37 @@ public class ColorRegionModel implements Cloneable{
 //		for (PolygonShape tri : shapes) {
 //			canvas.drawFilledTri(tri, color.toGdxColor(),0f,0f,getAngle(), drawScale.x,drawScale.y);
 //		}
+		PolygonRegion region = polygonRegion;
+		Color tint = color.toGdxColor();
 		if (SaveManager.getInstance().getAccessibilityEnabled()){
-			polygonRegionTexture = new PolygonRegion(colors[color.ordinal()],
-					polygonRegion.getVertices(), polygonRegion.getTriangles());
-			canvas.draw(polygonRegionTexture, 0, 0);
-		} else {
-			canvas.draw(polygonRegion, color.toGdxColor(), 0, 0);
+			region = patternRegions[color.ordinal()];
+			if (region == null) {
+				region = new PolygonRegion(colors[color.ordinal()],
+						polygonRegion.getVertices(), polygonRegion.getTriangles());
+				patternRegions[color.ordinal()] = region;
+			}
+			tint = Color.WHITE;
+		}
+		if (wrapWidth == 0 && wrapHeight == 0) {
+			canvas.draw(region, tint, 0, 0, transform);
+			return;
+		}
+
+		// Draw each period that reaches into view; a region no wider than the level
+		// needs at most two across a seam
+		float left = canvas.getCameraX() - canvas.getCameraViewWidth() / 2;
+		float bottom = canvas.getCameraY() - canvas.getCameraViewHeight() / 2;
+		float right = left + canvas.getCameraViewWidth();
+		float top = bottom + canvas.getCameraViewHeight();
+		int kx0 = wrapWidth > 0 ? (int) Math.ceil((left - maxX - offsetX) / wrapWidth) : 0;
+		int kx1 = wrapWidth > 0 ? (int) Math.floor((right - minX - offsetX) / wrapWidth) : 0;
+		int ky0 = wrapHeight > 0 ? (int) Math.ceil((bottom - maxY - offsetY) / wrapHeight) : 0;
+		int ky1 = wrapHeight > 0 ? (int) Math.floor((top - minY - offsetY) / wrapHeight) : 0;
+		for (int kx = kx0; kx <= kx1; kx++) {
+			for (int ky = ky0; ky <= ky1; ky++) {
+				drawTransform.set(transform).preTranslate(kx * wrapWidth, ky * wrapHeight);
+				canvas.draw(region, tint, 0, 0, drawTransform);
+			}
 		}
 	}
 }
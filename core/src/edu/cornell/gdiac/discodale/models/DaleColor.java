@@ -3,26 +3,20 @@ package edu.cornell.gdiac.discodale.models;
 import com.badlogic.gdx.graphics.Color;
 
 public enum DaleColor {
-    PINK,
-    BLUE,
-    GREEN,
-    ORANGE,
-    PURPLE;
+    PINK("FD3796"),
+    BLUE("05CDF9"),
+    GREEN("0BE748"),
+    ORANGE("FD7900"),
+    PURPLE("A933F1");
+
+    /** The color to draw with; shared, so it must not be changed */
+    private final Color gdxColor;
+
+    DaleColor(String hex) {
+        this.gdxColor = Color.valueOf(hex);
+    }
 
     public Color toGdxColor() {
-        switch (this) {
-            case PINK:
-                return Color.valueOf("FD3796");
-            case BLUE:
-                return Color.valueOf("05CDF9");
-            case GREEN:
-                return Color.valueOf("0BE748");
-            case ORANGE:
-                return Color.valueOf("FD7900");
-            case PURPLE:
-                return Color.valueOf("A933F1");
-            default:
-                return Color.WHITE;
-        }
+        return gdxColor;
     }
 }
@@ -571,6 +571,12 @@ public class DaleModel extends WheelObstacle {
 		grappleFilter.categoryBits = 0b00010000;
 		grappleFilter.maskBits     = 0b00000001;
 		grappleStickyPart.setFilterData(grappleFilter);
+
+		// Every part of Dale reports Dale as its owner
+		FixtureTag daleTag = new FixtureTag(FixtureTag.Kind.DALE, this, true, false);
+		setFixtureTag(daleTag);
+		bodyPart.setFixtureTag(daleTag);
+		grappleStickyPart.setFixtureTag(daleTag);
 		grappleAttachedBody = null;
 
 		setName(Constants.DALE_NAME_TAG);
@@ -622,6 +628,7 @@ public class DaleModel extends WheelObstacle {
 		FixtureDef sensorDef = new FixtureDef();
 		sensorDef.density = 0;
 		sensorDef.isSensor = true;
+		FixtureTag sensorTag = new FixtureTag(FixtureTag.Kind.GROUND_SENSOR, this, true, false);
 
 		// Sensor for facing right is on the bottom
 		Vector2 sensorCenterRight = new Vector2(0, 0 - bodyPart.getHeight() / 2);
@@ -630,7 +637,7 @@ public class DaleModel extends WheelObstacle {
 				sensorjv.getFloat("height", 0), sensorCenterRight, 0.0f);
 		sensorDef.shape = sensorShapeRight;
 		Fixture sensorFixtureRight = bodyPart.getBody().createFixture(sensorDef);
-		sensorFixtureRight.setUserData(getSensorName());
+		sensorFixtureRight.setUserData(sensorTag);
 		sensorFixtureRight.setFilterData(getFilterData()); // Required for walking
 
 		// Sensor for facing left is on top
@@ -640,7 +647,7 @@ public class DaleModel extends WheelObstacle {
 				sensorjv.getFloat("height", 0), sensorCenterLeft, 0.0f);
 		sensorDef.shape = sensorShapeLeft;
 		Fixture sensorFixtureLeft = bodyPart.getBody().createFixture(sensorDef);
-		sensorFixtureLeft.setUserData(getSensorName());
+		sensorFixtureLeft.setUserData(sensorTag);
 		sensorFixtureLeft.setFilterData(getFilterData()); // Required for walking
 
 		return true;
@@ -734,6 +741,29 @@ public class DaleModel extends WheelObstacle {
 				: Math.min(headGrappleAnimationClock + dt, ANIMATION_SPEED * (headTextures[0].getSize() - 1));
 	}
 
+	/**
+	 * Destroys the physics bodies of Dale, his body part and his tongue.
+	 *
+	 * Any joints on them go with the bodies, so Dale can be removed from a world that
+	 * is kept for the next attempt.
+	 *
+	 * @param world Box2D world that stores body
+	 */
+	@Override
+	public void deactivatePhysics(World world) {
+		grappleJoint = null;
+		grappleStickyPart.deactivatePhysics(world);
+		bodyPart.deactivatePhysics(world);
+		super.deactivatePhysics(world);
+	}
+
+	@Override
+	public void savePreviousTransform() {
+		super.savePreviousTransform();
+		bodyPart.savePreviousTransform();
+		grappleStickyPart.savePreviousTransform();
+	}
+
 	@Override
 	public void setDrawScale(Vector2 value) {
 		super.setDrawScale(value);
@@ -755,14 +785,23 @@ public class DaleModel extends WheelObstacle {
 
 		setDaleTexture();
 
+		// The tongue runs between the interpolated head and sticky part
+		float headX = getDrawX();
+		float headY = getDrawY();
+		float stickyX = grappleStickyPart.getDrawX();
+		float stickyY = grappleStickyPart.getDrawY();
+		vectorCache.set(stickyX, stickyY).sub(headX, headY);
+		float tongueAngle = vectorCache.angleRad();
+		float tongueLength = vectorCache.len();
+
 		// Reorder this to change if the tongue is on top of Dale or not
 		bodyPart.draw(canvas, 1.0f, bodyFlipY);
-		canvas.draw(tongueTextureOutline, Color.WHITE, 0, tongueTextureOutline.getHeight() / 2f, getX() * drawScale.x, getY() * drawScale.y,
-				getTongueAngle(), getTongueLength() / tongueTextureOutline.getWidth() * drawScale.x, 1);
+		canvas.draw(tongueTextureOutline, Color.WHITE, 0, tongueTextureOutline.getHeight() / 2f, headX * drawScale.x, headY * drawScale.y,
+				tongueAngle, tongueLength / tongueTextureOutline.getWidth() * drawScale.x, 1);
 		canvas.draw(stickyPartTextureOutline, Color.WHITE, stickyPartTextureOutline.getWidth() / 2f, stickyPartTextureOutline.getHeight() / 2f,
-				grappleStickyPart.getX() * drawScale.x, grappleStickyPart.getY() * drawScale.y, 0, 1, 1);
-		canvas.draw(tongueTexture, Color.WHITE, 0, tongueTexture.getHeight() / 2f, getX() * drawScale.x, getY() * drawScale.y,
-				getTongueAngle(), getTongueLength() / tongueTexture.getWidth() * drawScale.x, 1);
+				stickyX * drawScale.x, stickyY * drawScale.y, 0, 1, 1);
+		canvas.draw(tongueTexture, Color.WHITE, 0, tongueTexture.getHeight() / 2f, headX * drawScale.x, headY * drawScale.y,
+				tongueAngle, tongueLength / tongueTexture.getWidth() * drawScale.x, 1);
 		grappleStickyPart.draw(canvas);
 		this.draw(canvas, 1.0f, headFlipY);
 	}
@@ -17,6 +17,7 @@ import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.discodale.GameCanvas;
 import edu.cornell.gdiac.discodale.obstacle.CapsuleObstacle;
+import edu.cornell.gdiac.discodale.obstacle.FixtureTag;
 import edu.cornell.gdiac.util.FilmStrip;
 
 /**
@@ -157,6 +158,7 @@ public class FlyModel extends CapsuleObstacle {
 		// Gameplay attributes
 
 		setName("fly");
+		setFixtureTag(new FixtureTag(FixtureTag.Kind.FLY, this, true, false));
 	}
 
 
@@ -234,8 +236,8 @@ public class FlyModel extends CapsuleObstacle {
 		if (!isVisible) return;
 		animator.setFrame((int)animeFrame);
 		float sx = faceRight ? -1f : 1f;
-		canvas.draw(animator, Color.WHITE, origin.x, origin.y, getX() * drawScale.x,
-				getY() * drawScale.y, getAngle(),sx / TEXTURE_SCALE, 1.0f / TEXTURE_SCALE);
+		canvas.draw(animator, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x,
+				getDrawY() * drawScale.y, getDrawAngle(),sx / TEXTURE_SCALE, 1.0f / TEXTURE_SCALE);
 	}
 
 	private void updateFacing(){
@@ -1,24 +1,37 @@
 package edu.cornell.gdiac.discodale.models;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.Filter;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectSet;
 import edu.cornell.gdiac.discodale.GameCanvas;
 import edu.cornell.gdiac.discodale.obstacle.BoxObstacle;
+import edu.cornell.gdiac.discodale.obstacle.ChainObstacle;
+import edu.cornell.gdiac.discodale.obstacle.FixtureTag;
 import edu.cornell.gdiac.discodale.obstacle.Obstacle;
 import edu.cornell.gdiac.discodale.obstacle.PolygonObstacle;
+import edu.cornell.gdiac.discodale.obstacle.SimpleObstacle;
+import edu.cornell.gdiac.util.OccupancyGrid;
 import edu.cornell.gdiac.util.PooledList;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
 public class SceneModel {
+    /** Side of a change-tracking region of the grid, in cells */
+    public static final int REGION_SIZE = 8;
 
     private TextureRegion brickTile;
     private TextureRegion reflectiveTile;
@@ -30,6 +43,14 @@ public class SceneModel {
         ROTATE;
     }
 
+    /** How level tiles are turned into physics bodies */
+    public enum TileBodies {
+        /** One box per maximal rectangle of tiles */
+        RECTANGLES,
+        /** One chain loop per boundary of each connected tile region */
+        CHAINS;
+    }
+
     /** Window size */
     private float window_width;
     private float window_height;
@@ -38,6 +59,8 @@ public class SceneModel {
     public BoxObstacle goalDoor;
     /** Color regions */
     private PooledList<ColorRegionModel> colorRegions;
+    /** Finds the color region under a point; null until the regions are indexed */
+    private ColorRegionIndex colorRegionIndex;
     private ColorMovement colorMovement;
     // TODO: as inputs of scenemodel?
     private float colorRotationAmount = 0.5f;
@@ -78,6 +101,15 @@ public class SceneModel {
 
     private PooledList<Obstacle> seeThroughObstacles = new PooledList<>();
 
+    /** Level tiles, kept for drawing only; their collision comes from merged bodies */
+    private PooledList<Obstacle> tileSprites = new PooledList<>();
+    /** Number of boxes or chain loops the tiles were merged into */
+    private int tileShapes;
+    /** The level tiles drawn into offscreen pages, or null to draw them one by one */
+    private TileLayer tileLayer;
+    /** Whether we have tried to make the tile layer since the tiles were loaded */
+    private boolean tileLayerBaked;
+
     private PooledList<TutorialElement> tutorialElements = new PooledList<>();
 
     /** The boundary of the world */
@@ -93,12 +125,47 @@ public class SceneModel {
     private Vector2 pointCache;
 
     /** The grid: whether a tile has obstacle */
-    private boolean[][] grid; // = new boolean[GRID_WIDTH][GRID_HEIGHT];
+    private OccupancyGrid grid;
+    /** Cells covered by level tiles, filled in as the tiles are loaded */
+    private OccupancyGrid tileGrid;
+    /** Cells covered by scaffolds, which block movement but not sight */
+    private OccupancyGrid seeThroughGrid;
+    /** Collision behaviour of the tile in each cell, 0 for none; see {@link #tileBehaviour} */
+    private int[] tileBehaviours;
+    /** Obstacles already accounted for in tileGrid */
+    private ObjectSet<Obstacle> tileObstacles = new ObjectSet<>();
+    /** Cell rectangles (x0, y0, x1, y1) waiting to be recomputed */
+    private final IntArray dirtyCells = new IntArray();
+    /** Whether the clearance map is behind the grid after region updates */
+    private boolean clearanceStale;
+    /** Scratch space for one triangle in world coordinates */
+    private final float[] triangleCache = new float[6];
+    /** Incremented every time the grid contents change, so cached navigation data can be dropped */
+    private int gridVersion;
+    /** Number of change-tracking regions along each axis */
+    private int regionsX;
+    private int regionsY;
+    /** The grid version at which each region of REGION_SIZE cells square last changed */
+    private int[] regionVersions;
+    /** Chebyshev distance from each cell to the nearest blocked cell (0 for blocked cells) */
+    private int[][] clearance;
+    /** Clearance a fly needs in a cell to fit its hitbox */
+    private int flyClearance = 1;
+    /** The grid as flies see it: cells without enough clearance count as blocked */
+    private OccupancyGrid navigationGrid;
 
     public SceneModel(Rectangle bounds, ColorMovement movement, int tileSize) {
         this.tileSize = tileSize;
         this.bounds = new Rectangle(bounds);
-        this.grid = new boolean[(int) bounds.getWidth()][(int) bounds.getHeight()];
+        this.grid = new OccupancyGrid((int) bounds.getWidth(), (int) bounds.getHeight());
+        this.tileGrid = new OccupancyGrid(grid.getWidth(), grid.getHeight());
+        this.seeThroughGrid = new OccupancyGrid(grid.getWidth(), grid.getHeight());
+        this.tileBehaviours = new int[grid.getWidth() * grid.getHeight()];
+        this.clearance = new int[grid.getWidth()][grid.getHeight()];
+        this.navigationGrid = new OccupancyGrid(grid.getWidth(), grid.getHeight());
+        this.regionsX = (grid.getWidth() + REGION_SIZE - 1) / REGION_SIZE;
+        this.regionsY = (grid.getHeight() + REGION_SIZE - 1) / REGION_SIZE;
+        this.regionVersions = new int[regionsX * regionsY];
         System.out.println(bounds);
 //        this.scale = new Vector2(1024 / bounds.getWidth(), 576 / bounds.getHeight()); //todo
         this.scale = new Vector2(64f, 64f);
@@ -184,6 +251,16 @@ public class SceneModel {
         return darkMode;
     }
 
+    /** Returns the number of level tiles */
+    public int getTileCount() {
+        return tileSprites.size();
+    }
+
+    /** Returns the number of shapes the level tiles were merged into for collision */
+    public int getTileShapeCount() {
+        return tileShapes;
+    }
+
     public PooledList<Obstacle> getSeeThroughObstacles() {
         return seeThroughObstacles;
     }
@@ -238,32 +315,194 @@ public class SceneModel {
         }
     }
 
-    public boolean[][] getGrid() {
+    public OccupancyGrid getGrid() {
         return grid;
     }
 
+    /** Returns the cells covered by see-through tiles such as scaffolds */
+    public OccupancyGrid getSeeThroughGrid() {
+        return seeThroughGrid;
+    }
+
+    /**
+     * Returns true if the cell stops a line of sight
+     *
+     * A cell blocks sight when it is blocked for movement and not covered by a see-through
+     * tile. Cells outside the grid never block sight. Only static geometry is included.
+     */
+    public boolean blocksSight(int x, int y) {
+        return grid.inBounds(x, y) && grid.get(x, y) && !seeThroughGrid.get(x, y);
+    }
+
+    public int getGridVersion() {
+        return gridVersion;
+    }
+
+    /**
+     * Returns true if any cell in x0..x1, y0..y1 may have changed after a grid version
+     *
+     * Changes are tracked per region of REGION_SIZE cells square, so this may also report
+     * changes to cells near the rectangle. Both the grid and the navigation grid count.
+     *
+     * @param version The grid version the caller's data was computed for
+     */
+    public boolean changedSince(int version, int x0, int y0, int x1, int y1) {
+        x0 = Math.max(x0, 0) / REGION_SIZE;
+        y0 = Math.max(y0, 0) / REGION_SIZE;
+        x1 = Math.min(x1, grid.getWidth() - 1) / REGION_SIZE;
+        y1 = Math.min(y1, grid.getHeight() - 1) / REGION_SIZE;
+        for (int ry = y0; ry <= y1; ry++) {
+            for (int rx = x0; rx <= x1; rx++) {
+                if (regionVersions[rx + ry * regionsX] > version) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the regions that may have changed after a grid version
+     *
+     * Each region is added to out as the cell rectangle x0, y0, x1, y1, clipped to the grid.
+     *
+     * @param version The grid version the caller's data was computed for
+     * @param out     The list to add the rectangles to
+     *
+     * @return the number of cells in the listed regions
+     */
+    public int getChangedRegions(int version, IntArray out) {
+        int cells = 0;
+        for (int ry = 0; ry < regionsY; ry++) {
+            for (int rx = 0; rx < regionsX; rx++) {
+                if (regionVersions[rx + ry * regionsX] > version) {
+                    int x0 = rx * REGION_SIZE;
+                    int y0 = ry * REGION_SIZE;
+                    int x1 = Math.min(x0 + REGION_SIZE, grid.getWidth()) - 1;
+                    int y1 = Math.min(y0 + REGION_SIZE, grid.getHeight()) - 1;
+                    out.add(x0, y0, x1, y1);
+                    cells += (x1 - x0 + 1) * (y1 - y0 + 1);
+                }
+            }
+        }
+        return cells;
+    }
+
+    /** Records that the cells in x0..x1, y0..y1 changed in the current grid version */
+    private void markChanged(int x0, int y0, int x1, int y1) {
+        for (int ry = y0 / REGION_SIZE; ry <= y1 / REGION_SIZE; ry++) {
+            for (int rx = x0 / REGION_SIZE; rx <= x1 / REGION_SIZE; rx++) {
+                regionVersions[rx + ry * regionsX] = gridVersion;
+            }
+        }
+    }
+
+    /**
+     * Returns the clearance of every cell
+     *
+     * A clearance of k means every cell within k-1 steps (including diagonally) is free, so
+     * blocked cells have clearance 0 and free cells touching a wall or the level edge have 1.
+     */
+    public int[][] getClearance() {
+        if (clearanceStale) {
+            updateClearance();
+        }
+        return clearance;
+    }
+
+    /** Returns the grid used for fly pathfinding, with cells too tight for a fly blocked */
+    public OccupancyGrid getNavigationGrid() {
+        return navigationGrid;
+    }
+
+    public int getFlyClearance() {
+        return flyClearance;
+    }
+
+    /**
+     * Sets the clearance a fly needs to pass through a cell
+     *
+     * @param flyClearance The required clearance, at least 1
+     */
+    public void setFlyClearance(int flyClearance) {
+        flyClearance = Math.max(flyClearance, 1);
+        if (flyClearance != this.flyClearance) {
+            this.flyClearance = flyClearance;
+            if (clearanceStale) {
+                updateClearance();
+            }
+            updateNavigationGrid();
+            gridVersion++;
+            markChanged(0, 0, grid.getWidth() - 1, grid.getHeight() - 1);
+        }
+    }
+
+    /**
+     * Returns the clearance needed by a hitbox centred in a cell
+     *
+     * @param width  The hitbox width in physics units
+     * @param height The hitbox height in physics units
+     */
+    public static int clearanceFor(float width, float height) {
+        float half = Math.max(width, height) / 2;
+        return Math.max(1, (int) Math.ceil(half + 0.5f));
+    }
+
     public List<ColorRegionModel> getColorRegions() {
         return colorRegions;
     }
 
     public void addColorRegion(ColorRegionModel crm) {
         if(colorMovement==ColorMovement.SCROLL_HORIZONTAL || colorMovement == ColorMovement.SCROLL_VERTICAL){
-            float[] vertices = crm.getVertices().clone();
-            DaleColor[] seq = crm.getSeq() == null ? null : crm.getSeq().clone();
-            DaleColor color = crm.getColor();
-            for(int i=-1;i<=1;i++){
-                for(int j=-1;j<=1;j++){
-                    ColorRegionModel newCrm = new ColorRegionModel(color,vertices,seq);
-                    newCrm.move(i*window_width,j*window_height);
-                    this.colorRegions.add(newCrm);
-                }
-            }
-        }else{
-            this.colorRegions.add(crm);
+            // Scrolling regions repeat with the size of the level, so they come back in on
+            // the far side as they leave
+            crm.setWrap(window_width, window_height);
+            crm.saveStart();
         }
+        this.colorRegions.add(crm);
+    }
 
+    /**
+     * Builds the lookup index over the color regions
+     *
+     * This must be called once after all the color regions of a level are added. If the
+     * regions never move and the "color_raster" default is set, most lookups are answered
+     * from a grid with one cell per tile.
+     *
+     * @param defaults The level defaults
+     */
+    public void indexColorRegions(JsonValue defaults) {
+        colorRegionIndex = new ColorRegionIndex(colorRegions, window_width, window_height, 2 * tileSize);
+        if (colorMovement == ColorMovement.NO_MOVEMENT && defaults.getBoolean("color_raster", false)) {
+            colorRegionIndex.buildRaster(tileSize);
+        }
+    }
 
+    /**
+     * Returns the color region under a point
+     *
+     * When regions overlap, the first one added wins.
+     *
+     * @param x The x-coordinate in pixels
+     * @param y The y-coordinate in pixels
+     *
+     * @return the color region under the point, or null if there is none
+     */
+    public ColorRegionModel getColorRegionAt(float x, float y) {
+        if (colorRegionIndex == null) {
+            for (ColorRegionModel cr : colorRegions) {
+                if (cr.contains(x, y)) {
+                    return cr;
+                }
+            }
+            return null;
+        }
+        return colorRegionIndex.regionAt(x, y);
+    }
 
+    /** Returns the number of color raster cells a region outline passes through, or 0 if there is no raster */
+    public int getColorEdgeCellCount() {
+        return colorRegionIndex == null ? 0 : colorRegionIndex.getEdgeCellCount();
     }
 
     /**
@@ -283,40 +522,316 @@ public class SceneModel {
                 .toArray(DaleColor[]::new);
     }
 
+    /**
+     * Rebuilds the occupancy grid
+     *
+     * Tiles were rasterized when the level was loaded, so this only copies them and adds any
+     * obstacle that is not a tile. With assertions on, the result is checked against the
+     * Box2D fixtures of the level.
+     */
     public void updateGrid() {
-        // Test if center point of a grid is in any fixture
-        for (int i = 0; i < bounds.getWidth(); i++) {
-            for (int j = 0; j < bounds.getHeight(); j++) {
-                boolean temp = false;
-                for (Obstacle object : objects) {
-                    if(object == goalDoor){
+        grid.set(tileGrid);
+        for (Obstacle object : objects) {
+            if (object != goalDoor && !tileObstacles.contains(object)) {
+                rasterizeObstacle(object, 0, 0, grid.getWidth() - 1, grid.getHeight() - 1);
+                // Start tracking from here so later moves only touch what they swept
+                object.updateBounds();
+            }
+        }
+        dirtyCells.clear();
+        // The message scans again, but only once the check has already failed
+        assert gridMismatches() == 0
+                : "Occupancy grid does not match the physics world in " + gridMismatches() + " cells";
+        updateClearance();
+        updateNavigationGrid();
+        gridVersion++;
+        markChanged(0, 0, grid.getWidth() - 1, grid.getHeight() - 1);
+    }
+
+    /**
+     * Updates the grid around obstacles that moved or were removed since the last update
+     *
+     * Every obstacle that is not a tile reports its previous and current bounds, and only
+     * the cells under those are recomputed, together with the navigation cells close enough
+     * to feel them. This is cheap enough to call every frame. The regions holding those
+     * cells are marked changed, so that cached navigation data elsewhere can be kept.
+     */
+    public void updateGridRegions() {
+        for (Obstacle object : objects) {
+            if (object != goalDoor && !tileObstacles.contains(object) && object.updateBounds()) {
+                markDirty(object.getPreviousBounds());
+                markDirty(object.getBounds());
+            }
+        }
+        if (dirtyCells.size == 0) {
+            return;
+        }
+        gridVersion++;
+
+        for (int k = 0; k < dirtyCells.size; k += 4) {
+            int x0 = dirtyCells.get(k);
+            int y0 = dirtyCells.get(k + 1);
+            int x1 = dirtyCells.get(k + 2);
+            int y1 = dirtyCells.get(k + 3);
+            for (int j = y0; j <= y1; j++) {
+                for (int i = x0; i <= x1; i++) {
+                    grid.set(i, j, tileGrid.get(i, j));
+                }
+            }
+            for (Obstacle object : objects) {
+                if (object != goalDoor && !tileObstacles.contains(object)
+                        && overlapsCells(object.getBounds(), x0, y0, x1, y1)) {
+                    rasterizeObstacle(object, x0, y0, x1, y1);
+                }
+            }
+        }
+
+        // A navigation cell is blocked if anything lies within flyClearance - 1 of it
+        int r = flyClearance - 1;
+        for (int k = 0; k < dirtyCells.size; k += 4) {
+            int x0 = Math.max(0, dirtyCells.get(k) - r);
+            int y0 = Math.max(0, dirtyCells.get(k + 1) - r);
+            int x1 = Math.min(grid.getWidth() - 1, dirtyCells.get(k + 2) + r);
+            int y1 = Math.min(grid.getHeight() - 1, dirtyCells.get(k + 3) + r);
+            for (int j = y0; j <= y1; j++) {
+                for (int i = x0; i <= x1; i++) {
+                    navigationGrid.set(i, j, !areaFree(i - r, j - r, i + r, j + r));
+                }
+            }
+            markChanged(x0, y0, x1, y1);
+        }
+        dirtyCells.clear();
+        clearanceStale = true;
+    }
+
+    /**
+     * Removes an obstacle from the scene, clearing it from the grid
+     *
+     * The grid catches up on the next call to {@link #updateGridRegions}.
+     *
+     * @param obj   The obstacle to remove
+     * @param world The physics world holding it
+     */
+    public void removeObstacle(Obstacle obj, World world) {
+        obj.updateBounds();
+        markDirty(obj.getBounds());
+        if (tileObstacles.remove(obj)) {
+            // Tile bodies never overlap, so the cells inside this one belong to it alone
+            Rectangle b = obj.getBounds();
+            for (int i = firstCell(b.x); i <= lastCell(b.x + b.width, 0); i++) {
+                for (int j = firstCell(b.y); j <= lastCell(b.y + b.height, 1); j++) {
+                    if (!testFixtures(obj, i + 0.5f, j + 0.5f)) {
                         continue;
                     }
-                    if (object != null && object.getBody() != null) {
-                        for (Fixture fixture : object.getBody().getFixtureList()) {
-                            if (fixture.testPoint(i + 0.5f, j + 0.5f)) {
-                                temp = true;
-                                break;
-                            }
-                        }
-                        if (temp) {
-                            break;
+                    tileGrid.set(i, j, false);
+                    seeThroughGrid.set(i, j, false);
+                    tileBehaviours[i + j * grid.getWidth()] = 0;
+                }
+            }
+        }
+        objects.remove(obj);
+        seeThroughObstacles.remove(obj);
+        obj.deactivatePhysics(world);
+    }
+
+    /** Queues the cells overlapping a rectangle (in world units) for recomputation */
+    private void markDirty(Rectangle area) {
+        int x0 = Math.max(0, (int) Math.floor(area.x));
+        int y0 = Math.max(0, (int) Math.floor(area.y));
+        int x1 = Math.min(grid.getWidth() - 1, (int) Math.floor(area.x + area.width));
+        int y1 = Math.min(grid.getHeight() - 1, (int) Math.floor(area.y + area.height));
+        if (x0 <= x1 && y0 <= y1) {
+            dirtyCells.add(x0, y0, x1, y1);
+        }
+    }
+
+    /** Returns true if a rectangle (in world units) touches any cell in x0..x1, y0..y1 */
+    private boolean overlapsCells(Rectangle area, int x0, int y0, int x1, int y1) {
+        return area.x <= x1 + 1 && area.x + area.width >= x0 && area.y <= y1 + 1 && area.y + area.height >= y0;
+    }
+
+    /** Returns true if every cell in x0..x1, y0..y1 is inside the grid and free */
+    private boolean areaFree(int x0, int y0, int x1, int y1) {
+        if (x0 < 0 || y0 < 0 || x1 >= grid.getWidth() || y1 >= grid.getHeight()) {
+            return false;
+        }
+        for (int j = y0; j <= y1; j++) {
+            if (!grid.spanFree(x0, x1, j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a level tile, marking the cells it covers as blocked
+     *
+     * The tile is only drawn. Its collision is created by {@link #mergeTiles} once all the
+     * tiles are loaded.
+     *
+     * @param obj      The tile obstacle, with its fixture tag already set
+     * @param vertices The tile outline in world coordinates
+     */
+    private void addTile(PolygonObstacle obj, float[] vertices) {
+        tileSprites.add(obj);
+        FixtureTag tag = obj.getFixtureTag();
+        int behaviour = tileBehaviour(tag.seeThrough, tag.reflective);
+        float minX = vertices[0];
+        float maxX = vertices[0];
+        float minY = vertices[1];
+        float maxY = vertices[1];
+        for (int k = 2; k < vertices.length; k += 2) {
+            minX = Math.min(minX, vertices[k]);
+            maxX = Math.max(maxX, vertices[k]);
+            minY = Math.min(minY, vertices[k + 1]);
+            maxY = Math.max(maxY, vertices[k + 1]);
+        }
+        for (int i = firstCell(minX); i <= lastCell(maxX, 0); i++) {
+            for (int j = firstCell(minY); j <= lastCell(maxY, 1); j++) {
+                if (Intersector.isPointInPolygon(vertices, 0, vertices.length, i + 0.5f, j + 0.5f)) {
+                    tileGrid.set(i, j, true);
+                    seeThroughGrid.set(i, j, tag.seeThrough);
+                    tileBehaviours[i + j * grid.getWidth()] = behaviour;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the cells in x0..x1, y0..y1 covered by an obstacle that is not a tile
+     *
+     * Polygons are rasterized from their triangles. Any other shape falls back to testing its
+     * fixtures at every cell centre in the range.
+     */
+    private void rasterizeObstacle(Obstacle object, int x0, int y0, int x1, int y1) {
+        if (object instanceof PolygonObstacle) {
+            float[] tris = ((PolygonObstacle) object).getTriangles();
+            float cos = MathUtils.cos(object.getAngle());
+            float sin = MathUtils.sin(object.getAngle());
+            float[] t = triangleCache;
+            for (int k = 0; k < tris.length; k += 6) {
+                for (int v = 0; v < 6; v += 2) {
+                    t[v] = object.getX() + tris[k + v] * cos - tris[k + v + 1] * sin;
+                    t[v + 1] = object.getY() + tris[k + v] * sin + tris[k + v + 1] * cos;
+                }
+                float minX = Math.min(t[0], Math.min(t[2], t[4]));
+                float maxX = Math.max(t[0], Math.max(t[2], t[4]));
+                float minY = Math.min(t[1], Math.min(t[3], t[5]));
+                float maxY = Math.max(t[1], Math.max(t[3], t[5]));
+                int i1 = Math.min(x1, lastCell(maxX, 0));
+                int j1 = Math.min(y1, lastCell(maxY, 1));
+                for (int i = Math.max(x0, firstCell(minX)); i <= i1; i++) {
+                    for (int j = Math.max(y0, firstCell(minY)); j <= j1; j++) {
+                        if (Intersector.isPointInTriangle(i + 0.5f, j + 0.5f, t[0], t[1], t[2], t[3], t[4], t[5])) {
+                            grid.set(i, j, true);
                         }
                     }
+                }
+            }
+        } else if (object.getBody() != null) {
+            for (int i = x0; i <= x1; i++) {
+                for (int j = y0; j <= y1; j++) {
+                    if (!grid.get(i, j) && testFixtures(object, i + 0.5f, j + 0.5f)) {
+                        grid.set(i, j, true);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the first cell whose centre is at or after the given coordinate */
+    private int firstCell(float min) {
+        return Math.max(0, (int) Math.ceil(min - 0.5f));
+    }
+
+    /** Returns the last cell whose centre is at or before the given coordinate */
+    private int lastCell(float max, int axis) {
+        int size = axis == 0 ? grid.getWidth() : grid.getHeight();
+        return Math.min(size - 1, (int) Math.floor(max - 0.5f));
+    }
+
+    private boolean testFixtures(Obstacle object, float x, float y) {
+        if (object instanceof ChainObstacle) {
+            return ((ChainObstacle) object).contains(x, y);
+        }
+        for (Fixture fixture : object.getBody().getFixtureList()) {
+            if (fixture.testPoint(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the cells where the grid disagrees with a scan of the Box2D fixtures at the
+     * cell centre
+     *
+     * This is slow and only meant as a debugging check. It finds nothing before the
+     * level's physics has been activated.
+     */
+    private int gridMismatches() {
+        for (Obstacle object : objects) {
+            if (object != goalDoor && object.getBody() == null) {
+                return 0;
+            }
+        }
+        int mismatches = 0;
+        for (int i = 0; i < grid.getWidth(); i++) {
+            for (int j = 0; j < grid.getHeight(); j++) {
+                boolean hit = false;
+                for (Obstacle object : objects) {
+                    if (object != goalDoor && testFixtures(object, i + 0.5f, j + 0.5f)) {
+                        hit = true;
+                        break;
+                    }
+                }
+                if (hit != grid.get(i, j)) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
 
+    /** Recomputes the clearance map with a forward and a backward chamfer pass */
+    private void updateClearance() {
+        clearanceStale = false;
+        int w = grid.getWidth();
+        int h = grid.getHeight();
+        for (int j = 0; j < h; j++) {
+            for (int i = 0; i < w; i++) {
+                if (grid.get(i, j)) {
+                    clearance[i][j] = 0;
+                    continue;
                 }
-                grid[i][j] = temp;
+                int c = Math.min(clearanceAt(i - 1, j), clearanceAt(i - 1, j - 1));
+                c = Math.min(c, Math.min(clearanceAt(i, j - 1), clearanceAt(i + 1, j - 1)));
+                clearance[i][j] = c + 1;
+            }
+        }
+        for (int j = h - 1; j >= 0; j--) {
+            for (int i = w - 1; i >= 0; i--) {
+                int c = Math.min(clearanceAt(i + 1, j), clearanceAt(i + 1, j + 1));
+                c = Math.min(c, Math.min(clearanceAt(i, j + 1), clearanceAt(i - 1, j + 1)));
+                clearance[i][j] = Math.min(clearance[i][j], c + 1);
+            }
+        }
+    }
+
+    /** Returns the clearance of a cell, treating the outside of the level as blocked */
+    private int clearanceAt(int i, int j) {
+        if (i < 0 || i >= grid.getWidth() || j < 0 || j >= grid.getHeight()) {
+            return 0;
+        }
+        return clearance[i][j];
+    }
+
+    private void updateNavigationGrid() {
+        for (int i = 0; i < grid.getWidth(); i++) {
+            for (int j = 0; j < grid.getHeight(); j++) {
+                navigationGrid.set(i, j, clearance[i][j] < flyClearance);
             }
         }
-//        //Debugging message
-//        for (int j = GRID_HEIGHT - 1; j >= 0; j--) {
-//            for (int i = 0; i < GRID_WIDTH; i++) {
-//                System.out.print(grid[i][j]?1:0);
-//                System.out.print(" ");
-//            }
-//            System.out.println("");
-//        }
-//        System.out.println("");
     }
 
     public void updateColorRegionMovement(){
@@ -326,13 +841,11 @@ public class SceneModel {
             case SCROLL_HORIZONTAL:
                 for(ColorRegionModel cr:colorRegions){
                     cr.move(colorMovementAmount,0);
-                    cr.move(cr.testBound(window_width,0)*window_width*3,0);
                 }
                 break;
             case SCROLL_VERTICAL:
                 for(ColorRegionModel cr:colorRegions){
                     cr.move(0,-colorMovementAmount);
-                    cr.move(0,cr.testBound(window_height,1)*window_height*3);
                 }
                 break;
             case ROTATE:
@@ -343,6 +856,9 @@ public class SceneModel {
             default:
                 break;
         }
+        if (colorMovement != ColorMovement.NO_MOVEMENT && colorRegionIndex != null) {
+            colorRegionIndex.markMoved();
+        }
     }
 
     /**
@@ -418,11 +934,12 @@ public class SceneModel {
         obj.setDrawScale(scale);
         obj.setTexture(walls.get(type));
         obj.setName(name);
+        obj.setFixtureTag(new FixtureTag(FixtureTag.Kind.WALL, obj, false, false));
         Filter objFilter = new Filter();
         objFilter.categoryBits = 0b00000001;
         objFilter.maskBits     = 0b00011100;
         obj.setFilterData(objFilter);
-        addObject(obj);
+        addTile(obj, vertices);
     }
 
     public void addReflectiveWall(float[] vertices, String name, JsonValue defaults) {
@@ -435,11 +952,12 @@ public class SceneModel {
         obj.setDrawScale(scale);
         obj.setTexture(reflectiveTile);
         obj.setName(name);
+        obj.setFixtureTag(new FixtureTag(FixtureTag.Kind.WALL, obj, false, true));
         Filter objFilter = new Filter();
         objFilter.categoryBits = 0b00000001;
         objFilter.maskBits     = 0b00011100;
         obj.setFilterData(objFilter);
-        addObject(obj);
+        addTile(obj, vertices);
     }
 
     public void addBrickScaffold(float[] vertices, String name, JsonValue defaults, ScaffoldType type) {
@@ -452,12 +970,12 @@ public class SceneModel {
         obj.setDrawScale(scale);
         obj.setTexture(brickScaffolds.get(type));
         obj.setName(name);
+        obj.setFixtureTag(new FixtureTag(FixtureTag.Kind.SCAFFOLD, obj, true, false));
         Filter objFilter = new Filter();
         objFilter.categoryBits = 0b00000001;
         objFilter.maskBits     = 0b00011100;
         obj.setFilterData(objFilter);
-        addObject(obj);
-        seeThroughObstacles.add(obj);
+        addTile(obj, vertices);
     }
 
     public void addReflectiveScaffold(float[] vertices, String name, JsonValue defaults, ScaffoldType type) {
@@ -470,12 +988,207 @@ public class SceneModel {
         obj.setDrawScale(scale);
         obj.setTexture(reflectiveScaffolds.get(type));
         obj.setName(name);
+        obj.setFixtureTag(new FixtureTag(FixtureTag.Kind.SCAFFOLD, obj, true, true));
+        Filter objFilter = new Filter();
+        objFilter.categoryBits = 0b00000001;
+        objFilter.maskBits     = 0b00011100;
+        obj.setFilterData(objFilter);
+        addTile(obj, vertices);
+    }
+
+    /**
+     * Creates the collision for the level tiles
+     *
+     * Depending on the "tile_bodies" default this is either one box per maximal rectangle
+     * of tiles or one chain outline per collision behaviour. Tiles only ever merge with
+     * tiles of the same collision behaviour. This must be called once after all the tiles
+     * of a level are added.
+     *
+     * @param defaults The physics defaults for walls
+     */
+    public void mergeTiles(JsonValue defaults) {
+        TileBodies mode = TileBodies.valueOf(
+                defaults.getString("tile_bodies", TileBodies.RECTANGLES.name()).toUpperCase());
+        if (mode == TileBodies.CHAINS) {
+            outlineTiles(defaults);
+        } else {
+            coverTiles(defaults);
+        }
+    }
+
+    /**
+     * Adds one static box per maximal rectangle of tiles
+     *
+     * Tiles are merged greedily, first along a row and then over as many rows as the whole
+     * run fits.
+     */
+    private void coverTiles(JsonValue defaults) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        boolean[] merged = new boolean[width * height];
+        int bodies = 0;
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int behaviour = tileBehaviours[i + j * width];
+                if (behaviour == 0 || merged[i + j * width]) {
+                    continue;
+                }
+                int w = 1;
+                while (i + w < width && tileBehaviours[i + w + j * width] == behaviour
+                        && !merged[i + w + j * width]) {
+                    w++;
+                }
+                int h = 1;
+                while (j + h < height && runMatches(merged, i, j + h, w, behaviour)) {
+                    h++;
+                }
+                for (int y = j; y < j + h; y++) {
+                    Arrays.fill(merged, i + y * width, i + w + y * width, true);
+                }
+                addTileBody(new BoxObstacle(i + w / 2f, j + h / 2f, w, h), behaviour, i + j * width, defaults);
+                bodies++;
+            }
+        }
+        tileShapes = bodies;
+    }
+
+    /** Returns true if the w cells from (x, y) are unmerged tiles with the given behaviour */
+    private boolean runMatches(boolean[] merged, int x, int y, int w, int behaviour) {
+        int width = grid.getWidth();
+        for (int i = x; i < x + w; i++) {
+            if (tileBehaviours[i + y * width] != behaviour || merged[i + y * width]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the collision behaviour code of a tile; tiles merge only with equal codes */
+    private static int tileBehaviour(boolean seeThrough, boolean reflective) {
+        return 1 + (seeThrough ? 2 : 0) + (reflective ? 1 : 0);
+    }
+
+    /**
+     * Adds one static chain body per collision behaviour, outlining all its tiles
+     *
+     * Each connected region becomes one loop around its outside and one around each hole,
+     * so there are no internal edges between neighbouring tiles.
+     */
+    private void outlineTiles(JsonValue defaults) {
+        int loops = 0;
+        for (int behaviour = tileBehaviour(false, false); behaviour <= tileBehaviour(true, true); behaviour++) {
+            float[][] outline = traceOutline(behaviour);
+            if (outline.length > 0) {
+                addTileBody(new ChainObstacle(outline, 0, 0), behaviour, behaviour, defaults);
+                loops += outline.length;
+            }
+        }
+        tileShapes = loops;
+    }
+
+    /**
+     * Traces the boundary of the tiles with one collision behaviour into closed loops
+     *
+     * Boundary edges are directed with the tiles on their left, so outer loops run
+     * counter-clockwise and holes clockwise. Where two tiles only touch at a corner the
+     * trace turns left, keeping them in separate loops. Collinear vertices are dropped.
+     *
+     * @param behaviour The collision behaviour to outline
+     *
+     * @return the loops as x, y pairs in world coordinates
+     */
+    private float[][] traceOutline(int behaviour) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int stride = width + 1;
+        // Directions east, north, west, south as bits 0 to 3, and their vertex offsets
+        int[] step = {1, stride, -1, -stride};
+        byte[] edges = new byte[stride * (height + 1)];
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                if (tileBehaviours[i + j * width] != behaviour) {
+                    continue;
+                }
+                if (!hasBehaviour(i, j - 1, behaviour)) {
+                    edges[i + j * stride] |= 1;
+                }
+                if (!hasBehaviour(i + 1, j, behaviour)) {
+                    edges[i + 1 + j * stride] |= 2;
+                }
+                if (!hasBehaviour(i, j + 1, behaviour)) {
+                    edges[i + 1 + (j + 1) * stride] |= 4;
+                }
+                if (!hasBehaviour(i - 1, j, behaviour)) {
+                    edges[i + (j + 1) * stride] |= 8;
+                }
+            }
+        }
+
+        byte[] remaining = edges.clone();
+        List<float[]> loops = new ArrayList<>();
+        FloatArray points = new FloatArray();
+        for (int start = 0; start < remaining.length; start++) {
+            while (remaining[start] != 0) {
+                int startDir = Integer.numberOfTrailingZeros(remaining[start]);
+                int vertex = start;
+                int dir = startDir;
+                points.clear();
+                do {
+                    remaining[vertex] &= ~(1 << dir);
+                    vertex += step[dir];
+                    // Prefer left, then straight, then right
+                    int next = (dir + 1) & 3;
+                    if ((edges[vertex] & (1 << next)) == 0) {
+                        next = dir;
+                        if ((edges[vertex] & (1 << next)) == 0) {
+                            next = (dir + 3) & 3;
+                        }
+                    }
+                    if (next != dir) {
+                        points.add(vertex % stride, vertex / stride);
+                    }
+                    dir = next;
+                } while (vertex != start || dir != startDir);
+                loops.add(points.toArray());
+            }
+        }
+        return loops.toArray(new float[0][]);
+    }
+
+    /** Returns true if cell (x, y) is inside the grid and holds a tile with the behaviour */
+    private boolean hasBehaviour(int x, int y, int behaviour) {
+        return grid.inBounds(x, y) && tileBehaviours[x + y * grid.getWidth()] == behaviour;
+    }
+
+    /**
+     * Configures and adds a static body standing in for a group of tiles
+     *
+     * @param obj       The body
+     * @param behaviour The collision behaviour of the tiles
+     * @param index     A number to make the name unique
+     * @param defaults  The physics defaults for walls
+     */
+    private void addTileBody(SimpleObstacle obj, int behaviour, int index, JsonValue defaults) {
+        boolean seeThrough = ((behaviour - 1) & 2) != 0;
+        boolean reflective = ((behaviour - 1) & 1) != 0;
+        obj.setBodyType(BodyDef.BodyType.StaticBody);
+        obj.setDensity(defaults.getFloat("density", 0.0f));
+        obj.setFriction(defaults.getFloat("friction", 0.0f));
+        obj.setRestitution(defaults.getFloat("restitution", 0.0f));
+        obj.setDrawScale(scale);
+        // The collision controller looks for the "reflective" prefix
+        obj.setName((reflective ? "reflective" : "brick") + (seeThrough ? "scaffold" : "") + index);
+        obj.setFixtureTag(new FixtureTag(seeThrough ? FixtureTag.Kind.SCAFFOLD : FixtureTag.Kind.WALL,
+                obj, seeThrough, reflective));
         Filter objFilter = new Filter();
         objFilter.categoryBits = 0b00000001;
         objFilter.maskBits     = 0b00011100;
         obj.setFilterData(objFilter);
         addObject(obj);
-        seeThroughObstacles.add(obj);
+        tileObstacles.add(obj);
+        if (seeThrough) {
+            seeThroughObstacles.add(obj);
+        }
     }
 
     public void setGoal(float x, float y) {
@@ -491,6 +1204,7 @@ public class SceneModel {
         goalDoor.setDrawScale(scale);
         goalDoor.setTexture(goalTile);
         goalDoor.setName("goal");
+        goalDoor.setFixtureTag(new FixtureTag(FixtureTag.Kind.GOAL, goalDoor, true, false));
         Filter goalFilter = new Filter();
         goalFilter.categoryBits = 0b00000010;
         goalFilter.maskBits     = 0b00001000;
@@ -527,6 +1241,13 @@ public class SceneModel {
         for (ColorRegionModel crm : colorRegions) {
             crm.draw(canvas);
         }
+        if (tileLayer != null) {
+            tileLayer.draw(canvas);
+        } else {
+            for (Obstacle obj : tileSprites) {
+                obj.draw(canvas);
+            }
+        }
         for (Obstacle obj : objects) {
             obj.draw(canvas);
         }
@@ -535,6 +1256,28 @@ public class SceneModel {
         }
     }
 
+    /**
+     * Draws the level tiles into offscreen pages, if that has not been done yet
+     *
+     * This must be called outside of any drawing pass, before the first {@link #draw}.
+     * If the pages cannot be made, the tiles are drawn one by one instead.
+     *
+     * @param canvas The drawing context
+     */
+    public void bakeTiles(GameCanvas canvas) {
+        if (tileLayerBaked) {
+            return;
+        }
+        tileLayerBaked = true;
+        if (tileSprites.isEmpty()) {
+            return;
+        }
+        tileLayer = new TileLayer(tileGrid, scale);
+        if (!tileLayer.bake(canvas, tileGrid, tileSprites)) {
+            tileLayer = null;
+        }
+    }
+
     public void drawDebug(GameCanvas canvas) {
         for(Obstacle obj : objects) {
             obj.drawDebug(canvas);
@@ -556,6 +1299,49 @@ public class SceneModel {
         }
         objects.clear();
         seeThroughObstacles.clear();
+        tileSprites.clear();
+        tileObstacles.clear();
+        Arrays.fill(tileBehaviours, 0);
+        tileGrid.clear();
+        seeThroughGrid.clear();
+        dispose();
+    }
+
+    /**
+     * Releases the graphics resources of the scene
+     *
+     * The physics bodies are left to the world that owns them.
+     */
+    public void dispose() {
+        if (tileLayer != null) {
+            tileLayer.dispose();
+            tileLayer = null;
+        }
+        tileLayerBaked = false;
+        disposeColorRegions();
+    }
+
+    /**
+     * Releases the color regions, which share one texture while any of them is alive
+     */
+    public void disposeColorRegions() {
+        for (ColorRegionModel cr : colorRegions) {
+            cr.dispose();
+        }
+        colorRegions.clear();
+        colorRegionIndex = null;
+    }
+
+    /**
+     * Returns every color region to its color and position at the start of the level
+     */
+    public void resetColorRegions() {
+        for (ColorRegionModel cr : colorRegions) {
+            cr.restoreStart();
+        }
+        if (colorMovement != ColorMovement.NO_MOVEMENT && colorRegionIndex != null) {
+            colorRegionIndex.markMoved();
+        }
     }
 
     public void updateColorRegions(){
@@ -0,0 +1,165 @@
+package edu.cornell.gdiac.discodale.models;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import edu.cornell.gdiac.discodale.GameCanvas;
+import edu.cornell.gdiac.discodale.obstacle.Obstacle;
+import edu.cornell.gdiac.util.OccupancyGrid;
+
+/**
+ * The level tiles, drawn once into offscreen textures.
+ *
+ * Tiles never move, so there is no reason to send every one of them to the batch each frame.
+ * The level is cut into square pages no larger than any graphics card allows, and each page
+ * that holds a tile is drawn once when the level is first shown. After that a frame costs
+ * one quad per visible page.
+ */
+public class TileLayer {
+    /** Side of a page, in pixels */
+    private static final int PAGE_SIZE = 1024;
+
+    /** Number of pages across and up the level */
+    private final int columns;
+    private final int rows;
+    /** Side of a page, in grid cells */
+    private final int pageCells;
+    /** Size of a grid cell, in pixels */
+    private final Vector2 scale;
+    /** The page buffers, by column then row; null where a page holds no tiles */
+    private final FrameBuffer[] buffers;
+    /** The page contents, flipped the right way up */
+    private final TextureRegion[] regions;
+
+    /**
+     * Creates a tile layer for a level
+     *
+     * No buffer is made until {@link #bake} is called.
+     *
+     * @param tiles The grid cells covered by tiles
+     * @param scale The size of a grid cell, in pixels
+     */
+    public TileLayer(OccupancyGrid tiles, Vector2 scale) {
+        this.scale = new Vector2(scale);
+        this.pageCells = Math.max(1, (int) (PAGE_SIZE / Math.max(scale.x, scale.y)));
+        this.columns = (tiles.getWidth() + pageCells - 1) / pageCells;
+        this.rows = (tiles.getHeight() + pageCells - 1) / pageCells;
+        this.buffers = new FrameBuffer[columns * rows];
+        this.regions = new TextureRegion[columns * rows];
+    }
+
+    /**
+     * Draws the tiles into a buffer for every page that holds some
+     *
+     * This must be called outside of any other drawing pass.
+     *
+     * @param canvas The drawing context
+     * @param tiles  The grid cells covered by tiles
+     * @param sprites The tile obstacles to draw
+     *
+     * @return false if the buffers could not be made, in which case the tiles must be drawn directly
+     */
+    public boolean bake(GameCanvas canvas, OccupancyGrid tiles, Iterable<Obstacle> sprites) {
+        int width = (int) Math.ceil(pageCells * scale.x);
+        int height = (int) Math.ceil(pageCells * scale.y);
+        for (int col = 0; col < columns; col++) {
+            for (int row = 0; row < rows; row++) {
+                if (isEmpty(tiles, col, row)) {
+                    continue;
+                }
+                FrameBuffer buffer;
+                try {
+                    buffer = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+                } catch (IllegalStateException e) {
+                    Gdx.app.error("TileLayer", "Cannot make tile page buffer", e);
+                    dispose();
+                    return false;
+                }
+                canvas.beginOffscreen(buffer, col * pageCells * scale.x, row * pageCells * scale.y);
+                // Tiles outside the page are clipped, which is cheap enough to do once
+                for (Obstacle obj : sprites) {
+                    obj.draw(canvas);
+                }
+                canvas.endOffscreen();
+
+                // The camera zooms, so pages are filtered like the tile textures they replace.
+                // They hold premultiplied colors, which blend correctly when filtered.
+                Texture texture = buffer.getColorBufferTexture();
+                if (MathUtils.isPowerOfTwo(width) && MathUtils.isPowerOfTwo(height)) {
+                    texture.bind();
+                    Gdx.gl.glGenerateMipmap(GL20.GL_TEXTURE_2D);
+                    texture.setFilter(Texture.TextureFilter.MipMapLinearLinear, Texture.TextureFilter.Linear);
+                } else {
+                    texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+                }
+                TextureRegion region = new TextureRegion(texture);
+                region.flip(false, true);
+                buffers[col + row * columns] = buffer;
+                regions[col + row * columns] = region;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if no tile lies in a page
+     *
+     * @param tiles The grid cells covered by tiles
+     * @param col   The page column
+     * @param row   The page row
+     */
+    private boolean isEmpty(OccupancyGrid tiles, int col, int row) {
+        int x0 = col * pageCells;
+        int x1 = Math.min(x0 + pageCells, tiles.getWidth()) - 1;
+        int y0 = row * pageCells;
+        int y1 = Math.min(y0 + pageCells, tiles.getHeight()) - 1;
+        for (int y = y0; y <= y1; y++) {
+            if (!tiles.spanFree(x0, x1, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Draws the pages in view of the camera
+     *
+     * @param canvas The drawing context, in a standard drawing pass
+     */
+    public void draw(GameCanvas canvas) {
+        float pageWidth = pageCells * scale.x;
+        float pageHeight = pageCells * scale.y;
+        float left = canvas.getCameraX() - canvas.getCameraViewWidth() / 2;
+        float bottom = canvas.getCameraY() - canvas.getCameraViewHeight() / 2;
+        int col0 = Math.max(0, (int) Math.floor(left / pageWidth));
+        int col1 = Math.min(columns - 1, (int) Math.floor((left + canvas.getCameraViewWidth()) / pageWidth));
+        int row0 = Math.max(0, (int) Math.floor(bottom / pageHeight));
+        int row1 = Math.min(rows - 1, (int) Math.floor((bottom + canvas.getCameraViewHeight()) / pageHeight));
+        for (int col = col0; col <= col1; col++) {
+            for (int row = row0; row <= row1; row++) {
+                TextureRegion region = regions[col + row * columns];
+                if (region != null) {
+                    canvas.drawPremultiplied(region, col * pageWidth, row * pageHeight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the page buffers
+     */
+    public void dispose() {
+        for (int ii = 0; ii < buffers.length; ii++) {
+            if (buffers[ii] != null) {
+                buffers[ii].dispose();
+                buffers[ii] = null;
+                regions[ii] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * ChainObstacle.java
+ *
+ * A static outline made of closed Box2D chain loops.  A chain has no interior,
+ * so neighbouring tiles traced into one loop have no internal edges for bodies
+ * to catch on, and a whole level of walls fits in a handful of fixtures.
+ *
+ * Loops are given in local coordinates.  Outer boundaries run counter-clockwise
+ * and holes clockwise, so the solid side is always on the left.
+ */
+package edu.cornell.gdiac.discodale.obstacle;
+
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.physics.box2d.*;
+
+import edu.cornell.gdiac.discodale.*;  // For GameCanvas
+
+/**
+ * Outline model made of chain loops, for static level geometry.
+ */
+public class ChainObstacle extends SimpleObstacle {
+	/** The loop vertices, as x, y pairs in local coordinates */
+	private float[][] loops;
+	/** Shape information for each loop */
+	private ChainShape[] shapes;
+	/** A cache value for the fixtures (for resizing) */
+	private Fixture[] geoms;
+
+	/**
+	 * Creates a chain outline at the given position
+	 *
+	 * @param loops The closed loops, as x, y pairs without repeating the first vertex
+	 * @param x     Initial x position of the outline origin
+	 * @param y     Initial y position of the outline origin
+	 */
+	public ChainObstacle(float[][] loops, float x, float y) {
+		super(x,y);
+		this.loops = loops;
+		shapes = new ChainShape[loops.length];
+		geoms = new Fixture[loops.length];
+		for (int ii = 0; ii < loops.length; ii++) {
+			assert loops[ii].length >= 6 && loops[ii].length % 2 == 0 : "Chain loops need at least 3 vertices";
+			shapes[ii] = new ChainShape();
+			shapes[ii].createLoop(loops[ii]);
+		}
+	}
+
+	/** Returns the number of loops in this outline */
+	public int getLoopCount() {
+		return loops.length;
+	}
+
+	/**
+	 * Returns true if a point lies inside the outline
+	 *
+	 * Chain fixtures have no interior, so {@link Fixture#testPoint} never reports a hit.
+	 * This uses the even-odd rule over all loops instead, which counts holes as outside.
+	 *
+	 * @param x The x-coordinate in world coordinates
+	 * @param y The y-coordinate in world coordinates
+	 *
+	 * @return true if the point lies inside the outline
+	 */
+	public boolean contains(float x, float y) {
+		float px = x - getX();
+		float py = y - getY();
+		boolean inside = false;
+		for (float[] loop : loops) {
+			int n = loop.length;
+			for (int ii = 0, jj = n - 2; ii < n; jj = ii, ii += 2) {
+				float xi = loop[ii], yi = loop[ii + 1];
+				float xj = loop[jj], yj = loop[jj + 1];
+				if ((yi > py) != (yj > py) && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Create new fixtures for this body, defining the shape
+	 *
+	 * This is the primary method to override for custom physics objects
+	 */
+	protected void createFixtures() {
+		if (body == null) {
+			return;
+		}
+
+		releaseFixtures();
+
+		// Create the fixtures
+		for (int ii = 0; ii < shapes.length; ii++) {
+			fixture.shape = shapes[ii];
+			geoms[ii] = body.createFixture(fixture);
+		}
+		markDirty(false);
+	}
+
+	/**
+	 * Release the fixtures for this body, reseting the shape
+	 *
+	 * This is the primary method to override for custom physics objects
+	 */
+	protected void releaseFixtures() {
+		for (int ii = 0; ii < geoms.length; ii++) {
+			if (geoms[ii] != null) {
+				body.destroyFixture(geoms[ii]);
+				geoms[ii] = null;
+			}
+		}
+	}
+
+	/**
+	 * Draws the outline of the physics body.
+	 *
+	 * This method can be helpful for understanding issues with collisions.
+	 *
+	 * @param canvas Drawing context
+	 */
+	public void drawDebug(GameCanvas canvas) {
+		for (ChainShape shape : shapes) {
+			canvas.drawPhysics(shape,Color.YELLOW,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
+		}
+	}
+}
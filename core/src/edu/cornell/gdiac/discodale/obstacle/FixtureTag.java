@@ -0,0 +1,74 @@
+/*
+ * FixtureTag.java
+ *
+ * Box2D callbacks only hand us fixtures.  Rather than comparing a fixture against
+ * the fixture lists of every object in the level, each fixture carries one of these
+ * as its user data, so a callback can tell what it hit with a single field read.
+ *
+ * Tags are immutable and shared by all the fixtures of an obstacle.
+ */
+package edu.cornell.gdiac.discodale.obstacle;
+
+/**
+ * Describes the game entity that owns a fixture.
+ */
+public class FixtureTag {
+	/** The kinds of entity a fixture can belong to */
+	public enum Kind {
+		/** Any part of Dale, including the body and the tongue */
+		DALE,
+		/** A fly */
+		FLY,
+		/** A solid level tile */
+		WALL,
+		/** A scaffold tile; solid, but it does not block sight */
+		SCAFFOLD,
+		/** The goal door */
+		GOAL,
+		/** One of the sensors that tell whether Dale is on the ground */
+		GROUND_SENSOR,
+		/** Anything else */
+		OTHER
+	}
+
+	/** Tag for obstacles that were never given one */
+	private static final FixtureTag UNTAGGED = new FixtureTag(Kind.OTHER, null, false, false);
+
+	/** The kind of entity */
+	public final Kind kind;
+	/** The game object the fixture belongs to, which may own several obstacles */
+	public final Object owner;
+	/** Whether sight lines pass through the fixture */
+	public final boolean seeThrough;
+	/** Whether the fixture is reflective and rejects Dale's tongue */
+	public final boolean reflective;
+
+	/**
+	 * Creates a new fixture tag
+	 *
+	 * @param kind       The kind of entity
+	 * @param owner      The game object the fixture belongs to
+	 * @param seeThrough Whether sight lines pass through the fixture
+	 * @param reflective Whether the fixture is reflective
+	 */
+	public FixtureTag(Kind kind, Object owner, boolean seeThrough, boolean reflective) {
+		this.kind = kind;
+		this.owner = owner;
+		this.seeThrough = seeThrough;
+		this.reflective = reflective;
+	}
+
+	/**
+	 * Returns the tag of a fixture
+	 *
+	 * Fixtures without a tag, such as sensors with their own user data, are reported
+	 * as {@link Kind#OTHER} with no owner.
+	 *
+	 * @param data The fixture user data
+	 *
+	 * @return the tag of the fixture
+	 */
+	public static FixtureTag of(Object data) {
+		return data instanceof FixtureTag ? (FixtureTag) data : UNTAGGED;
+	}
+}
@@ -48,6 +48,8 @@ public abstract class Obstacle {
 	protected boolean masseffect;
     /** A tag for debugging purposes */
     private String nametag;
+	/** The tag given to this object's fixtures */
+	private FixtureTag fixtureTag;
 	/** Drawing scale to convert physics units to pixels */
 	protected Vector2 drawScale;
 
@@ -67,6 +69,24 @@ public abstract class Obstacle {
 	/** A cache value for when the user wants to access the drawing scale */
 	protected Vector2 scaleCache = new Vector2();
 
+	/// Bounds tracking
+	/** The fixture bounds as of the last call to updateBounds */
+	private Rectangle bounds = new Rectangle();
+	/** The fixture bounds as of the call before that */
+	private Rectangle previousBounds = new Rectangle();
+	/** A cache value for computing fixture vertices in world coordinates */
+	private Vector2 vertexCache = new Vector2();
+
+	/// Render interpolation
+	/** How far the frame being drawn lies between the last two physics steps, in [0,1] */
+	private static float interpolation = 1;
+	/** Whether the transform before the last physics step has been recorded */
+	private boolean hasPrevious;
+	/** The position before the last physics step */
+	private Vector2 previousPosition = new Vector2();
+	/** The angle before the last physics step */
+	private float previousAngle;
+
 
 	/// BodyDef Methods
 	/**
@@ -832,6 +852,168 @@ public abstract class Obstacle {
 		return null;
 	}
 	
+	/// Bounds Methods
+	/**
+	 * Returns the axis-aligned bounds of this object's fixtures, in world coordinates
+	 *
+	 * The value is only refreshed by {@link #updateBounds}. This method returns a
+	 * REFERENCE to the bounds; do not modify it.
+	 *
+	 * @return the bounds as of the last call to updateBounds
+	 */
+	public Rectangle getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Returns the bounds from before the last call to updateBounds
+	 *
+	 * Together with {@link #getBounds} this is the area an object swept since it was last
+	 * checked. This method returns a REFERENCE to the bounds; do not modify it.
+	 *
+	 * @return the previous bounds of this object
+	 */
+	public Rectangle getPreviousBounds() {
+		return previousBounds;
+	}
+
+	/**
+	 * Recomputes the bounds of this object's fixtures
+	 *
+	 * The old bounds become the previous bounds. An object without a body keeps an
+	 * empty rectangle at its position.
+	 *
+	 * @return true if the bounds changed
+	 */
+	public boolean updateBounds() {
+		Rectangle old = previousBounds;
+		previousBounds = bounds;
+		bounds = old;
+		Body body = getBody();
+		if (body == null) {
+			bounds.set(getX(), getY(), 0, 0);
+		} else {
+			float minX = Float.POSITIVE_INFINITY;
+			float minY = Float.POSITIVE_INFINITY;
+			float maxX = Float.NEGATIVE_INFINITY;
+			float maxY = Float.NEGATIVE_INFINITY;
+			for (Fixture fix : body.getFixtureList()) {
+				Shape shape = fix.getShape();
+				float radius = shape.getRadius();
+				int count;
+				switch (shape.getType()) {
+					case Polygon:
+						count = ((PolygonShape) shape).getVertexCount();
+						break;
+					case Chain:
+						count = ((ChainShape) shape).getVertexCount();
+						break;
+					case Edge:
+						count = 2;
+						break;
+					default:
+						count = 1;
+						break;
+				}
+				for (int ii = 0; ii < count; ii++) {
+					switch (shape.getType()) {
+						case Polygon:
+							((PolygonShape) shape).getVertex(ii, vertexCache);
+							break;
+						case Chain:
+							((ChainShape) shape).getVertex(ii, vertexCache);
+							break;
+						case Edge:
+							if (ii == 0) {
+								((EdgeShape) shape).getVertex1(vertexCache);
+							} else {
+								((EdgeShape) shape).getVertex2(vertexCache);
+							}
+							break;
+						default:
+							vertexCache.set(((CircleShape) shape).getPosition());
+							break;
+					}
+					Vector2 world = body.getWorldPoint(vertexCache);
+					minX = Math.min(minX, world.x - radius);
+					minY = Math.min(minY, world.y - radius);
+					maxX = Math.max(maxX, world.x + radius);
+					maxY = Math.max(maxY, world.y + radius);
+				}
+			}
+			if (minX > maxX) {
+				bounds.set(getX(), getY(), 0, 0);
+			} else {
+				bounds.set(minX, minY, maxX - minX, maxY - minY);
+			}
+		}
+		return !bounds.equals(previousBounds);
+	}
+
+	/// Interpolation Methods
+	/**
+	 * Sets how far the next frame lies between the last two physics steps
+	 *
+	 * The physics runs at a fixed step, so a frame usually falls part way between
+	 * two steps.  Drawing at the blended transform keeps motion smooth whatever the
+	 * display rate.
+	 *
+	 * @param alpha The fraction of a step since the last one, in [0,1]
+	 */
+	public static void setInterpolation(float alpha) {
+		interpolation = alpha;
+	}
+
+	/**
+	 * Records the current transform as the one before the next physics step
+	 *
+	 * Call this before each step.  Objects made of several bodies should forward
+	 * it to their parts.
+	 */
+	public void savePreviousTransform() {
+		previousPosition.set(getX(), getY());
+		previousAngle = getAngle();
+		hasPrevious = true;
+	}
+
+	/**
+	 * Returns the x-coordinate at which to draw this object
+	 *
+	 * @return the x-coordinate blended between the last two physics steps
+	 */
+	public float getDrawX() {
+		float x = getX();
+		return hasPrevious ? previousPosition.x + (x - previousPosition.x) * interpolation : x;
+	}
+
+	/**
+	 * Returns the y-coordinate at which to draw this object
+	 *
+	 * @return the y-coordinate blended between the last two physics steps
+	 */
+	public float getDrawY() {
+		float y = getY();
+		return hasPrevious ? previousPosition.y + (y - previousPosition.y) * interpolation : y;
+	}
+
+	/**
+	 * Returns the angle at which to draw this object
+	 *
+	 * The angle is blended the short way round, so a body that crosses from pi to
+	 * -pi does not spin backwards for a frame.
+	 *
+	 * @return the angle blended between the last two physics steps (in radians)
+	 */
+	public float getDrawAngle() {
+		float angle = getAngle();
+		if (!hasPrevious) {
+			return angle;
+		}
+		float delta = angle - previousAngle;
+		delta -= MathUtils.PI2 * MathUtils.floor((delta + MathUtils.PI) / MathUtils.PI2);
+		return previousAngle + delta * interpolation;
+	}
+
 	/// DRAWING METHODS
 	/**
      * Returns the drawing scale for this physics object
@@ -909,6 +1091,31 @@ public abstract class Obstacle {
     public void setName(String value) {
      	nametag = value; 
 	}
+
+	/**
+	 * Returns the tag attached to the fixtures of this object
+	 *
+	 * If no tag was set, this is a tag of kind OTHER owned by this object.
+	 *
+	 * @return the tag attached to the fixtures of this object
+	 */
+	public FixtureTag getFixtureTag() {
+		if (fixtureTag == null) {
+			fixtureTag = new FixtureTag(FixtureTag.Kind.OTHER, this, false, false);
+		}
+		return fixtureTag;
+	}
+
+	/**
+	 * Sets the tag attached to the fixtures of this object
+	 *
+	 * The tag is applied when the physics are activated, so it must be set before then.
+	 *
+	 * @param tag the tag attached to the fixtures of this object
+	 */
+	public void setFixtureTag(FixtureTag tag) {
+		fixtureTag = tag;
+	}
 	
 	/**
 	 * Create a new physics object at the origin.
@@ -67,6 +67,18 @@ public class PolygonObstacle extends SimpleObstacle {
 		return sizeCache.set(dimension);
 	}
 
+	/**
+	 * Returns the triangulation of this polygon
+	 *
+	 * Every 6 floats form one triangle, in physics units relative to the polygon's
+	 * origin. This method returns a REFERENCE; do not modify it.
+	 *
+	 * @return the triangulation of this polygon
+	 */
+	public float[] getTriangles() {
+		return vertices;
+	}
+
 	/** 
 	 * Sets the dimensions of this box
 	 *
@@ -365,7 +377,7 @@ public class PolygonObstacle extends SimpleObstacle {
 	 */
 	public void draw(GameCanvas canvas) {
 		if (region != null) {
-			canvas.draw(region,Color.WHITE,0,0,getX()*drawScale.x,getY()*drawScale.y,getAngle(),1,1);
+			canvas.draw(region,Color.WHITE,0,0,getDrawX()*drawScale.x,getDrawY()*drawScale.y,getDrawAngle(),1,1);
 		}
 	}
 
@@ -776,7 +776,7 @@ public abstract class SimpleObstacle extends Obstacle {
 	 */
 	public void draw(GameCanvas canvas) {
 		if (texture != null) {
-			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.x,getAngle(),1,1);
+			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getDrawX()*drawScale.x,getDrawY()*drawScale.x,getDrawAngle(),1,1);
 		}
 	}
 
@@ -789,7 +789,7 @@ public abstract class SimpleObstacle extends Obstacle {
 	 */
 	public void draw(GameCanvas canvas, float sx, float sy) {
 		if (texture != null) {
-			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.x,getAngle(),sx,sy);
+			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getDrawX()*drawScale.x,getDrawY()*drawScale.x,getDrawAngle(),sx,sy);
 		}
 	}
 	
@@ -844,6 +844,7 @@ public abstract class SimpleObstacle extends Obstacle {
 		// Only initialize if a body was created.
 		if (body != null) {
 			createFixtures();
+			tagFixtures();
 			return true;
 		} 
 		
@@ -875,6 +876,21 @@ public abstract class SimpleObstacle extends Obstacle {
 	 */
 	protected abstract void createFixtures();
 
+	/**
+	 * Attaches the fixture tag to every fixture that has no user data of its own
+	 */
+	protected void tagFixtures() {
+		if (body == null) {
+			return;
+		}
+		FixtureTag tag = getFixtureTag();
+		for (Fixture fixture : body.getFixtureList()) {
+			if (fixture.getUserData() == null) {
+				fixture.setUserData(tag);
+			}
+		}
+	}
+
     /**
      * Release the fixtures for this body, reseting the shape
      *
@@ -896,6 +912,7 @@ public abstract class SimpleObstacle extends Obstacle {
 		// Recreate the fixture object if dimensions changed.
 		if (isDirty()) {
 			createFixtures();
+			tagFixtures();
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+/*
+ * OccupancyGrid.java
+ *
+ * A grid of blocked/free cells packed one bit per cell.
+ *
+ * Rows are stored one after the other, each padded to a whole number of 64-bit
+ * words, so a row can be scanned a word at a time and the cells around a point
+ * sit next to each other in memory.  Compared to a boolean[][] this is an eighth
+ * of the size and has no per-column objects.
+ */
+package edu.cornell.gdiac.util;
+
+import java.util.Arrays;
+
+/**
+ * A bit-packed, row-major grid of blocked cells.
+ *
+ * Cells are addressed by (x, y) with x along a row. Reads outside the grid through
+ * {@link #blocked} and {@link #neighbourhood} report the cell as blocked.
+ */
+public class OccupancyGrid {
+	/** Mask bit for the cell at offset (dx, dy) in a 3x3 neighbourhood */
+	public static int bit(int dx, int dy) {
+		return 1 << ((dy + 1) * 3 + (dx + 1));
+	}
+
+	/** Number of columns */
+	private final int width;
+	/** Number of rows */
+	private final int height;
+	/** Number of words used by each row */
+	private final int stride;
+	/** The packed cells, bit x % 64 of word y * stride + x / 64 */
+	private final long[] words;
+
+	/**
+	 * Creates an empty grid
+	 *
+	 * @param width  The number of columns
+	 * @param height The number of rows
+	 */
+	public OccupancyGrid(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.stride = (width + 63) >>> 6;
+		this.words = new long[stride * height];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/** Returns the number of 64-bit words in each row */
+	public int getStride() {
+		return stride;
+	}
+
+	/**
+	 * Returns one word of a row
+	 *
+	 * @param y The row
+	 * @param w The word within the row; cell x lives in word x / 64
+	 *
+	 * @return the 64 cells starting at column 64 * w, lowest bit first
+	 */
+	public long getWord(int y, int w) {
+		return words[y * stride + w];
+	}
+
+	public boolean inBounds(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	/** Returns true if the cell is blocked. The cell must be inside the grid. */
+	public boolean get(int x, int y) {
+		return (words[y * stride + (x >>> 6)] & (1L << x)) != 0;
+	}
+
+	/** Returns true if the cell is blocked or outside the grid */
+	public boolean blocked(int x, int y) {
+		return !inBounds(x, y) || get(x, y);
+	}
+
+	public void set(int x, int y, boolean blocked) {
+		int index = y * stride + (x >>> 6);
+		if (blocked) {
+			words[index] |= 1L << x;
+		} else {
+			words[index] &= ~(1L << x);
+		}
+	}
+
+	/** Marks every cell free */
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+
+	/**
+	 * Copies the contents of a grid of the same size
+	 *
+	 * @param other The grid to copy
+	 */
+	public void set(OccupancyGrid other) {
+		assert other.width == width && other.height == height : "Grid sizes differ";
+		System.arraycopy(other.words, 0, words, 0, words.length);
+	}
+
+	/**
+	 * Returns the first blocked cell in row y at or after column x
+	 *
+	 * @return the column of that cell, or the grid width if the rest of the row is free
+	 */
+	public int nextBlocked(int x, int y) {
+		if (x >= width) {
+			return width;
+		}
+		int w = x >>> 6;
+		int base = y * stride;
+		long bits = words[base + w] & (-1L << x);
+		while (bits == 0) {
+			if (++w == stride) {
+				return width;
+			}
+			bits = words[base + w];
+		}
+		return Math.min(width, (w << 6) + Long.numberOfTrailingZeros(bits));
+	}
+
+	/**
+	 * Returns the last blocked cell in row y at or before column x
+	 *
+	 * @return the column of that cell, or -1 if the row is free up to x
+	 */
+	public int previousBlocked(int x, int y) {
+		if (x < 0) {
+			return -1;
+		}
+		int w = x >>> 6;
+		int base = y * stride;
+		long bits = words[base + w] & (-1L >>> (63 - (x & 63)));
+		while (bits == 0) {
+			if (--w < 0) {
+				return -1;
+			}
+			bits = words[base + w];
+		}
+		return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+	}
+
+	/**
+	 * Returns true if the cells x0 .. x1 (inclusive) of row y are all free
+	 *
+	 * The span must lie inside the grid.
+	 */
+	public boolean spanFree(int x0, int x1, int y) {
+		return nextBlocked(x0, y) > x1;
+	}
+
+	/**
+	 * Returns the 3x3 block around a cell as a 9-bit mask
+	 *
+	 * The cell at offset (dx, dy) is bit {@link #bit}(dx, dy); a set bit means blocked or
+	 * outside the grid. The centre cell must be inside the grid.
+	 */
+	public int neighbourhood(int x, int y) {
+		return row3(x, y - 1) | (row3(x, y) << 3) | (row3(x, y + 1) << 6);
+	}
+
+	/** Returns the cells x-1, x, x+1 of row y as the low 3 bits, blocked if outside */
+	private int row3(int x, int y) {
+		if (y < 0 || y >= height) {
+			return 0b111;
+		}
+		int base = y * stride;
+		int bits;
+		if (x >= 1 && ((x + 1) & 63) >= 2) {
+			// All three cells share a word
+			bits = (int) (words[base + ((x - 1) >>> 6)] >>> (x - 1)) & 0b111;
+		} else {
+			bits = 0;
+			for (int i = 0; i < 3; i++) {
+				int cx = x - 1 + i;
+				if (cx < 0 || cx >= width || get(cx, y)) {
+					bits |= 1 << i;
+				}
+			}
+		}
+		if (x + 1 >= width) {
+			bits |= 0b100;
+		}
+		return bits;
+	}
+}